@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.function.LongSupplier;
+
+/*
+ * Access to the engine's Benchmark class. The engine is in the default package,
+ * which JMH doesn't allow benchmarks in and packaged code can't import, so it is
+ * reached by reflection. That only happens in setup, the benchmarks call the
+ * LongSuppliers Benchmark hands out.
+ */
+final class Engine {
+    private final Object benchmark;
+
+    Engine() throws ReflectiveOperationException {
+        benchmark = Class.forName("Benchmark").getConstructor(String.class).newInstance("");
+    }
+
+    // Benchmark.microBenchmark, checked to do the operations the JMH method is
+    // annotated with.
+    LongSupplier microBenchmark(String name, int operations) throws ReflectiveOperationException {
+        int actual = (Integer) invoke("operations", name);
+        if (actual != operations)
+            throw new IllegalStateException(name + " does " + actual + " operations per call, not " + operations);
+        return (LongSupplier) invoke("microBenchmark", name);
+    }
+
+    // Benchmark.searchBenchmark, returns the nodes of each solve.
+    LongSupplier searchBenchmark(String moves) throws ReflectiveOperationException {
+        return (LongSupplier) invoke("searchBenchmark", moves);
+    }
+
+    void clearTable() throws ReflectiveOperationException {
+        benchmark.getClass().getMethod("clearTable").invoke(benchmark);
+    }
+
+    private Object invoke(String method, String argument) throws ReflectiveOperationException {
+        return benchmark.getClass().getMethod(method, String.class).invoke(benchmark, argument);
+    }
+}
@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The micro benchmarks of the engine's Benchmark harness under JMH. Every call
+ * runs over all of Benchmark.POSITIONS, the time is reported per position (or
+ * per position and column).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class MicroBenchmarks {
+    // Benchmark.POSITIONS.length, setup fails if the two don't match.
+    static final int POSITIONS = 11;
+    static final int POSITION_COLUMNS = POSITIONS * 7;
+
+    private LongSupplier checkGameWon;
+    private LongSupplier evalMoveScore;
+    private LongSupplier threatScore;
+    private LongSupplier orderMoves;
+    private LongSupplier makeUndo;
+    private LongSupplier isWin;
+    private LongSupplier playUndo;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        Engine engine = new Engine();
+        checkGameWon = engine.microBenchmark("Board.checkGameWon", POSITIONS);
+        evalMoveScore = engine.microBenchmark("Board.evalMoveScore", POSITION_COLUMNS);
+        threatScore = engine.microBenchmark("BitBoard.threatScore", POSITION_COLUMNS);
+        orderMoves = engine.microBenchmark("Minimax.orderMoves", POSITIONS);
+        makeUndo = engine.microBenchmark("Board.makeMove+undoMove", POSITIONS);
+        isWin = engine.microBenchmark("BitBoard.isWin", POSITIONS);
+        playUndo = engine.microBenchmark("BitBoard.play+undo", POSITION_COLUMNS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long boardCheckGameWon() {
+        return checkGameWon.getAsLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITION_COLUMNS)
+    public long boardEvalMoveScore() {
+        return evalMoveScore.getAsLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITION_COLUMNS)
+    public long bitBoardThreatScore() {
+        return threatScore.getAsLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long minimaxOrderMoves() {
+        return orderMoves.getAsLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long boardMakeUndo() {
+        return makeUndo.getAsLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long bitBoardIsWin() {
+        return isWin.getAsLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITION_COLUMNS)
+    public long bitBoardPlayUndo() {
+        return playUndo.getAsLong();
+    }
+}
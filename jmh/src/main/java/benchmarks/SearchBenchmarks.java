@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Full solves of the positions of Benchmark.POSITIONS, each from an empty
+ * table. Reported as solves per second, and the nodes counter as nodes per
+ * second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class SearchBenchmarks {
+    @Param({ "2334602352", "6612430221", "12030261055516653540", "15030156656115151243", "55566502016015065220",
+            "11553125641630122340", "114643526435", "10205422115213135425415524", "10555230522355240243234014",
+            "03036624312340251114422", "0165546040120620255112" })
+    public String position;
+
+    private Engine engine;
+    private LongSupplier solve;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        engine = new Engine();
+        solve = engine.searchBenchmark(position);
+    }
+
+    // outside of the measured time, a full clear takes longer than the easy solves.
+    @Setup(Level.Invocation)
+    public void clearTable() throws ReflectiveOperationException {
+        engine.clearTable();
+    }
+
+    @Benchmark
+    public long solve(Counters counters) {
+        long nodes = solve.getAsLong();
+        counters.nodes += nodes;
+        return nodes;
+    }
+}
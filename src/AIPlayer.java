@@ -1,13 +1,172 @@
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public class AIPlayer extends Player {
+    // each AI keeps its own search, the transposition table is the process wide
+    // TranspositionTable.shared() unless one is passed in, so every game warms
+    // it up for the next. searches with different evaluators keep their depth
+    // limited entries apart (see Minimax.tableKey), a table of its own also keeps
+    // a player's speed from depending on what other games searched.
+    public Minimax minimax;
+    // time allowed per move, null to always solve the position to the end.
+    public Duration moveTime;
+    // depth and node caps of the search, see Difficulty.
+    public Difficulty difficulty = Difficulty.PERFECT;
+    // result and counters of the last move searched. written by the thread that
+    // searched it, which is an executor thread for getMoveAsync.
+    public volatile SearchResult lastSearch;
+    // searches the opponent's possible moves while it is thinking, see startPondering.
+    private Minimax ponderer;
+    private Thread ponderThread;
+    // search of the last getMoveAsync, see moveNow.
+    private volatile Minimax thinking;
 
     public AIPlayer(Colour colour) {
+        this(colour, TranspositionTable.shared());
+    }
+
+    public AIPlayer(Colour colour, TranspositionTable table) {
         super("MiniMax", colour);
+        this.minimax = new Minimax(table);
+    }
+
+    /*
+     * Pondering: while the opponent is thinking, a background thread searches the
+     * positions after each of its moves with a second Minimax that shares this
+     * player's transposition table. The opponent's most likely move (the best
+     * move stored for the position) goes first, then the rest in column order,
+     * one depth at a time for all of them so every reply gets some work. Each
+     * step is one search to that depth, whose shallower iterations are in the
+     * table already, and a reply gets the difficulty's node cap in total, the
+     * most getMove would spend on it. When the opponent has moved the pondering
+     * is stopped and getMove finds what it searched in the table, the position
+     * after the actual move is often solved already.
+     */
+    public void startPondering(Board board) {
+        stopPondering();
+        BitBoard root = new BitBoard(board);
+        if (root.lastMoveWon() || root.moveCount >= BitBoard.SIZE)
+            return;
+        Minimax search = new Minimax(minimax.table);
+        search.endgame = minimax.endgame;
+        search.evaluator = difficulty.evaluator;
+        ponderer = search;
+        ponderThread = new Thread(() -> ponder(search, root), "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // stops the background search and waits for it to return, which takes at most
+    // a few thousand nodes.
+    public void stopPondering() {
+        if (ponderThread == null)
+            return;
+        ponderer.stop();
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+        ponderer = null;
+    }
+
+    private void ponder(Minimax search, BitBoard root) {
+        int[] replies = Minimax.columnOrder.clone();
+        // stored by this player's last search, under its key.
+        int entry = search.table.probe(minimax.tableKey(root));
+        int likely = entry == 0 ? -1 : TranspositionTable.bestCol(entry);
+        if (likely != -1 && root.isMirrored())
+            likely = BitBoard.mirrorCol(likely);
+        if (likely != -1) {
+            int i = 0;
+            while (replies[i] != likely)
+                i++;
+            for (; i > 0; i--)
+                replies[i] = replies[i - 1];
+            replies[0] = likely;
+        }
+        boolean[] done = new boolean[BitBoard.WIDTH];
+        long[] nodesLeft = new long[BitBoard.WIDTH];
+        Arrays.fill(nodesLeft, difficulty.maxNodes);
+        int maxDepth = Math.min(difficulty.maxDepth, BitBoard.SIZE - root.moveCount - 1);
+        for (int depth = 1; depth <= maxDepth && !search.isStopped(); depth++) {
+            boolean searched = false;
+            for (int col : replies) {
+                if (search.isStopped())
+                    return;
+                if (done[col] || !root.canPlay(col))
+                    continue;
+                root.play(col);
+                if (root.lastMoveWon()) {
+                    done[col] = true;
+                } else {
+                    SearchResult result = search.searchToDepth(root, depth, nodesLeft[col]);
+                    nodesLeft[col] -= result.stats.nodes;
+                    // a decided position won't change with more depth.
+                    done[col] = nodesLeft[col] <= 0 || Math.abs(result.score) > Minimax.WIN_SCORE - BitBoard.SIZE - 1;
+                    searched = true;
+                }
+                root.undo();
+            }
+            if (!searched)
+                return;
+        }
     }
 
     public Move getMove(Board board) {
-        int bestCol = Minimax.getBestMove(board);
-        Move move = new Move(bestCol, this);
+        minimax.evaluator = difficulty.evaluator;
+        SearchResult result = search(minimax, new BitBoard(board));
+        lastSearch = result;
+        Move move = new Move(result.col, this);
         board.checkAvailableMove(move);
         return move;
     }
+
+    /*
+     * Non blocking getMove, the search runs on the executor and the future
+     * completes with its move. The position is copied before returning, so the
+     * board may change while the search runs.
+     * Each call searches with a Minimax of its own that shares this player's
+     * table. Cancelling the future stops that search within a few thousand nodes,
+     * so a game nobody waits for anymore doesn't keep a core busy until the
+     * position is solved. moveNow stops it as well but completes the future with
+     * the best move found so far.
+     */
+    public CompletableFuture<Move> getMoveAsync(Board board, Executor executor) {
+        BitBoard position = new BitBoard(board);
+        Minimax search = new Minimax(minimax.table);
+        search.book = minimax.book;
+        search.endgame = minimax.endgame;
+        search.listener = minimax.listener;
+        search.evaluator = difficulty.evaluator;
+        thinking = search;
+        CompletableFuture<Move> future = CompletableFuture.supplyAsync(() -> {
+            SearchResult result = search(search, position);
+            lastSearch = result;
+            Move move = new Move(result.col, this);
+            move.row = position.checkAvailableMove(result.col);
+            return move;
+        }, executor);
+        // also runs when the future is cancelled, which doesn't reach the search
+        // by itself.
+        future.whenComplete((move, error) -> search.stop());
+        return future;
+    }
+
+    // makes the running getMoveAsync search return now, with the move of its last
+    // completed iteration or, when solving, the best root column solved so far.
+    public void moveNow() {
+        Minimax search = thinking;
+        if (search != null)
+            search.stop();
+    }
+
+    private SearchResult search(Minimax search, BitBoard position) {
+        if (moveTime == null && difficulty == Difficulty.PERFECT)
+            return search.search(position);
+        return search.search(position, difficulty.maxDepth, difficulty.maxNodes, moveTime);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+public class Analysis {
+    /*
+     * Result of Minimax.analyze: a score for every legal column of a position.
+     * Scores are from player 1's point of view like the rest of the search. A
+     * column that wasn't solved within the budget only has bounds, its score is
+     * somewhere between lower and upper.
+     */
+    public static class Column {
+        public int col;
+        public int lower;
+        public int upper;
+        // the exact score, or the bound that was narrowed if there is no exact one.
+        public int score;
+        // TranspositionTable.EXACT, LOWER_BOUND (score is at least this) or
+        // UPPER_BOUND (score is at most this).
+        public int flag;
+        // moves from the analyzed position until the game is won or lost, 0 for a
+        // draw and -1 if the score isn't exact.
+        public int distance;
+        // the column followed by the expected reply, answer to that and so on.
+        public int[] pv;
+
+        public Column(int col, int lower, int upper, int moveCount) {
+            this.col = col;
+            this.lower = lower;
+            this.upper = upper;
+            // the lowest and highest score possible after the move.
+            int best = Minimax.winScore(moveCount + 1);
+            if (lower == upper) {
+                score = lower;
+                flag = TranspositionTable.EXACT;
+            } else if (lower > -best) {
+                score = lower;
+                flag = TranspositionTable.LOWER_BOUND;
+            } else {
+                score = upper;
+                flag = TranspositionTable.UPPER_BOUND;
+            }
+            if (flag != TranspositionTable.EXACT) {
+                distance = -1;
+            } else if (score == 0) {
+                distance = 0;
+            } else {
+                // a win's score is made from the move count it is reached at.
+                distance = Minimax.WIN_SCORE - Math.abs(score) - moveCount + 1;
+            }
+        }
+
+        public boolean isExact() {
+            return flag == TranspositionTable.EXACT;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            for (int move : pv)
+                line.append(move);
+            String bound = flag == TranspositionTable.EXACT ? "" : flag == TranspositionTable.LOWER_BOUND ? ">=" : "<=";
+            return "col " + col + ": " + bound + score + (distance > 0 ? " (decided in " + distance + ")" : "")
+                    + ", pv " + line;
+        }
+    }
+
+    public int moveCount;
+    // indexed by column, null for a full column.
+    public Column[] columns = new Column[BitBoard.WIDTH];
+    public SearchStats stats;
+
+    public Analysis(int moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    // the best column for the player to move, -1 if there is none. columns that
+    // are only bounded are compared by their bound.
+    public int bestCol() {
+        boolean isMax = moveCount % 2 == 0;
+        int bestCol = -1;
+        for (int col : Minimax.columnOrder) {
+            Column column = columns[col];
+            if (column != null && (bestCol == -1
+                    || (isMax ? column.score > columns[bestCol].score : column.score < columns[bestCol].score)))
+                bestCol = col;
+        }
+        return bestCol;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Column column : columns) {
+            if (column != null)
+                text.append(column).append('\n');
+        }
+        return text.append(stats).toString();
+    }
+}
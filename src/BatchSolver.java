@@ -0,0 +1,191 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+public class BatchSolver {
+    /*
+     * Solves every position of a file in the "moves score" line format of the
+     * common Connect Four benchmark sets: the moves as column digits 1-7 and the
+     * expected score, the score being optional. Scores are in the format of those
+     * sets, from the point of view of the player to move: 22 minus the number of
+     * tokens the winner has played when it wins, negative if the player to move
+     * loses, 0 for a draw.
+     *
+     * Positions are read by a reader thread and solved on a thread pool, every
+     * worker keeps its own Minimax and transposition table across positions.
+     * Results are written in input order. At most a fixed number of positions
+     * are in flight, the reader waits for the writer when that many are pending,
+     * so memory stays bounded however large the input is.
+     *
+     * usage: java BatchSolver <input file> [output file, - for stdout] [threads] [table MB]
+     */
+    private final static int PENDING_PER_THREAD = 64;
+
+    // a solved line, or the error for a line that isn't a valid position.
+    private static class Result {
+        String moves;
+        int expected;
+        boolean hasExpected;
+        int score;
+        long nodes;
+        long nanos;
+        String error;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: java BatchSolver <input file> [output file, - for stdout] [threads] [table MB]");
+            return;
+        }
+        String output = args.length > 1 ? args[1] : "-";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int tableMB = args.length > 3 ? Integer.parseInt(args[3]) : TranspositionTable.DEFAULT_SIZE_MB;
+        run(args[0], output, threads, tableMB);
+    }
+
+    public static void run(String input, String output, int threads, int tableMB) throws IOException {
+        ThreadLocal<Minimax> workers = ThreadLocal.withInitial(() -> new Minimax(
+                new TranspositionTable(tableMB, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED)));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<Result>> pending = new ArrayBlockingQueue<Future<Result>>(threads * PENDING_PER_THREAD);
+        // marks the end of the input in the queue.
+        Future<Result> end = CompletableFuture.completedFuture(null);
+
+        Thread reader = new Thread(() -> {
+            try (BufferedReader lines = Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isBlank())
+                        continue;
+                    String text = line;
+                    pending.put(pool.submit(() -> solve(workers.get(), text)));
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read " + input + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RejectedExecutionException e) {
+                // the writer failed and shut the pool down, nothing waits for the
+                // rest of the input.
+            } finally {
+                try {
+                    pending.put(end);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "batch-reader");
+
+        long start = System.nanoTime();
+        long solved = 0;
+        long errors = 0;
+        long checked = 0;
+        long mismatches = 0;
+        long nodes = 0;
+        long solveNanos = 0;
+        CRC32 checksum = new CRC32();
+        reader.start();
+        try (BufferedWriter writer = output.equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            while (true) {
+                Future<Result> next = pending.take();
+                if (next == end)
+                    break;
+                Result result = next.get();
+                String line;
+                if (result.error != null) {
+                    errors++;
+                    line = result.moves + " error: " + result.error;
+                } else {
+                    solved++;
+                    nodes += result.nodes;
+                    solveNanos += result.nanos;
+                    line = result.moves + " " + result.score;
+                    if (result.hasExpected) {
+                        checked++;
+                        if (result.score != result.expected) {
+                            mismatches++;
+                            line += " expected " + result.expected;
+                        }
+                    }
+                }
+                byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                checksum.update(bytes, 0, bytes.length);
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Batch solve failed", e);
+        } finally {
+            pool.shutdownNow();
+            reader.interrupt();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("%d positions solved in %.2f s: %.1f positions/s, %.0f nodes/s, %.1f us per solve%n", solved,
+                seconds, solved / seconds, nodes / seconds, solved == 0 ? 0 : solveNanos / 1e3 / solved);
+        System.err.printf("checked against expected scores: %d, mismatches: %d, invalid lines: %d%n", checked,
+                mismatches, errors);
+        System.err.printf("output checksum (crc32): %08x%n", checksum.getValue());
+    }
+
+    private static Result solve(Minimax minimax, String line) {
+        Result result = new Result();
+        String[] fields = line.trim().split("\\s+");
+        result.moves = fields[0];
+        BitBoard position = new BitBoard();
+        for (int i = 0; i < result.moves.length(); i++) {
+            int col = result.moves.charAt(i) - '1';
+            if (col < 0 || col >= BitBoard.WIDTH || !position.canPlay(col) || position.lastMoveWon()) {
+                result.error = "invalid move at index " + i;
+                return result;
+            }
+            position.play(col);
+        }
+        if (position.lastMoveWon()) {
+            result.error = "game is over";
+            return result;
+        }
+        if (fields.length > 1) {
+            try {
+                result.expected = Integer.parseInt(fields[1]);
+                result.hasExpected = true;
+            } catch (NumberFormatException e) {
+                result.error = "invalid score " + fields[1];
+                return result;
+            }
+        }
+        long start = System.nanoTime();
+        int score = minimax.solve(position);
+        result.nanos = System.nanoTime() - start;
+        result.score = toSideToMove(score, position.moveCount);
+        result.nodes = minimax.stats.nodes;
+        return result;
+    }
+
+    // converts a Minimax score (player 1's point of view, made from the move count
+    // of the win) to the benchmark format.
+    public static int toSideToMove(int score, int moveCount) {
+        if (score == 0)
+            return 0;
+        int winMoveCount = Minimax.WIN_SCORE - Math.abs(score);
+        int value = (BitBoard.SIZE + 2 - winMoveCount) / 2;
+        boolean player1Wins = score > 0;
+        boolean player1ToMove = moveCount % 2 == 0;
+        return player1Wins == player1ToMove ? value : -value;
+    }
+}
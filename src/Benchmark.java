@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+public class Benchmark {
+    /*
+     * Benchmarks for win detection, move evaluation, move ordering, make/undo
+     * (also with a game journal) and the full search. Every micro benchmark is
+     * warmed up and then timed over a number of fixed-length measurement
+     * iterations, the search benchmarks solve a fixed set of positions grouped by
+     * game phase and difficulty and report time-to-solve and nodes/sec. Results
+     * are printed and written as JSON so the numbers of two versions can be
+     * compared.
+     * The JMH benchmarks in jmh/ run the same workloads (microBenchmark and
+     * searchBenchmark) under JMH, this harness needs only javac and java.
+     *
+     * usage: java Benchmark [output file] [name filter] [label]
+     */
+    // test positions as move histories (columns 0-6), grouped by game phase and
+    // difficulty (easy < 10^4 nodes, medium < 10^6 nodes, hard above that). the
+    // player to move has no winning move and isn't lost on the spot, those are
+    // answered without a search.
+    public final static String[][] POSITIONS = {
+            // phase, difficulty, moves
+            { "begin", "hard", "2334602352" },
+            { "begin", "hard", "6612430221" },
+            { "middle", "easy", "12030261055516653540" },
+            { "middle", "easy", "15030156656115151243" },
+            { "middle", "medium", "55566502016015065220" },
+            { "middle", "medium", "11553125641630122340" },
+            { "middle", "hard", "114643526435" },
+            { "end", "easy", "10205422115213135425415524" },
+            { "end", "easy", "10555230522355240243234014" },
+            { "end", "medium", "03036624312340251114422" },
+            { "end", "medium", "0165546040120620255112" },
+    };
+
+    private final static int WARMUP_ITERATIONS = 3;
+    private final static int MEASURE_ITERATIONS = 5;
+    private final static long ITERATION_NANOS = 500_000_000L;
+    private final static int SEARCH_RUNS = 3;
+
+    // results of the benchmarked calls are folded in here so the JIT can't drop
+    // the work.
+    private static long sink;
+
+    private String filter;
+    private List<String> results = new ArrayList<String>();
+    private Player[] players = { new Player("Player 1", Colour.RED), new Player("Player 2", Colour.YELLOW) };
+    // the test positions the micro benchmarks run on, and a legal move for each.
+    private Board[] boards = new Board[POSITIONS.length];
+    private BitBoard[] bitBoards = new BitBoard[POSITIONS.length];
+    private Move[] nextMoves = new Move[POSITIONS.length];
+    // micro benchmarks by name in the order they run, each call runs one over all
+    // test positions and returns a value folded from the results.
+    private Map<String, LongSupplier> microBenchmarks = new LinkedHashMap<String, LongSupplier>();
+    private Map<String, Integer> operations = new HashMap<String, Integer>();
+    // solves the search benchmark positions.
+    private Minimax minimax = new Minimax();
+
+    public Benchmark(String filter) {
+        this.filter = filter;
+        for (int i = 0; i < POSITIONS.length; i++) {
+            boards[i] = new Board(POSITIONS[i][2], players);
+            bitBoards[i] = new BitBoard(boards[i]);
+            nextMoves[i] = new Move(boards[i].possibleMoves()[0], boards[i].getCurrentPlayer());
+            boards[i].checkAvailableMove(nextMoves[i]);
+        }
+
+        add("Board.checkGameWon", boards.length, () -> {
+            long won = 0;
+            for (Board board : boards) {
+                Move last = board.moves.peek();
+                if (board.checkGameWon(last.row, last.col))
+                    won++;
+            }
+            return won;
+        });
+        add("Board.evalMoveScore", boards.length * Board.WIDTH, () -> {
+            long total = 0;
+            for (Board board : boards) {
+                for (int col = 0; col < Board.WIDTH; col++)
+                    total += board.evalMoveScore(col, 1);
+            }
+            return total;
+        });
+        add("BitBoard.threatScore", bitBoards.length * Board.WIDTH, () -> {
+            long total = 0;
+            for (BitBoard board : bitBoards) {
+                for (int col = 0; col < Board.WIDTH; col++)
+                    total += board.canPlay(col) ? board.threatScore(col) : 0;
+            }
+            return total;
+        });
+        // the ordering the search does at every node, with an empty history table.
+        Minimax ordering = new Minimax(new TranspositionTable(1, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE));
+        add("Minimax.orderMoves", bitBoards.length, () -> {
+            long total = 0;
+            for (BitBoard board : bitBoards)
+                total += ordering.orderMoves(board, -1)[0];
+            return total;
+        });
+        add("Board.makeMove+undoMove", boards.length, () -> {
+            long total = 0;
+            for (int i = 0; i < boards.length; i++) {
+                boards[i].makeMove(nextMoves[i]);
+                total += boards[i].moveCount;
+                boards[i].undoMove();
+            }
+            return total;
+        });
+        add("BitBoard.isWin", bitBoards.length, () -> {
+            long won = 0;
+            for (BitBoard board : bitBoards) {
+                if (BitBoard.isWin(board.boards[0]) || BitBoard.isWin(board.boards[1]))
+                    won++;
+            }
+            return won;
+        });
+        add("BitBoard.play+undo", bitBoards.length * Board.WIDTH, () -> {
+            long total = 0;
+            for (BitBoard board : bitBoards) {
+                for (int col = 0; col < BitBoard.WIDTH; col++) {
+                    if (board.canPlay(col)) {
+                        board.play(col);
+                        total += board.hash;
+                        board.undo();
+                    }
+                }
+            }
+            return total;
+        });
+    }
+
+    private void add(String name, int ops, LongSupplier op) {
+        microBenchmarks.put(name, op);
+        operations.put(name, ops);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "benchmark.json";
+        Benchmark benchmark = new Benchmark(args.length > 1 ? args[1] : "");
+        benchmark.runMicroBenchmarks();
+        benchmark.runSearchBenchmarks();
+        benchmark.writeJson(output, args.length > 2 ? args[2] : "");
+    }
+
+    // the micro benchmark called name, also run by the JMH benchmarks in jmh/.
+    public LongSupplier microBenchmark(String name) {
+        LongSupplier op = microBenchmarks.get(name);
+        if (op == null)
+            throw new IllegalArgumentException("Unknown benchmark: " + name);
+        return op;
+    }
+
+    // operations one call of the micro benchmark does.
+    public int operations(String name) {
+        microBenchmark(name);
+        return operations.get(name);
+    }
+
+    // solves the position given as a move history, returns the number of nodes
+    // searched. the table is only cleared by clearTable.
+    public LongSupplier searchBenchmark(String moves) {
+        Board board = new Board(moves, players);
+        return () -> {
+            minimax.findBestMove(board);
+            return minimax.stats.nodes;
+        };
+    }
+
+    public void clearTable() {
+        minimax.table.clear();
+    }
+
+    public void runMicroBenchmarks() throws IOException {
+        for (Map.Entry<String, LongSupplier> benchmark : microBenchmarks.entrySet())
+            measure(benchmark.getKey(), operations.get(benchmark.getKey()), benchmark.getValue());
+
+        // the same with every move appended to a journal in a temporary directory.
+        Path journalDirectory = Files.createTempDirectory("journal");
+        GameJournal journal = new GameJournal(journalDirectory);
+        for (Board board : boards)
+            board.attachJournal(journal);
+        measure("Board.makeMove+undoMove journaled", boards.length, microBenchmark("Board.makeMove+undoMove"));
+        journal.close();
+        for (Board board : boards)
+            board.journal = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDirectory)) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+        Files.delete(journalDirectory);
+    }
+
+    // times a call that does `ops` operations, reports the average time per operation.
+    private void measure(String name, int ops, LongSupplier op) {
+        if (!name.contains(filter))
+            return;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            runIteration(op);
+        double[] nanosPerOp = new double[MEASURE_ITERATIONS];
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long[] run = runIteration(op);
+            nanosPerOp[i] = (double) run[1] / (run[0] * ops);
+        }
+        double mean = 0;
+        for (double v : nanosPerOp)
+            mean += v / MEASURE_ITERATIONS;
+        double variance = 0;
+        for (double v : nanosPerOp)
+            variance += (v - mean) * (v - mean) / (MEASURE_ITERATIONS - 1);
+        double error = Math.sqrt(variance);
+        System.out.printf("%-28s %12.2f ns/op  +- %8.2f  (%,.0f ops/s)%n", name, mean, error, 1e9 / mean);
+        results.add(String.format(
+                "{\"benchmark\": \"%s\", \"mode\": \"avgt\", \"unit\": \"ns/op\", \"score\": %.3f, \"error\": %.3f, \"opsPerSec\": %.1f}",
+                name, mean, error, 1e9 / mean));
+    }
+
+    // returns the number of calls and the nanoseconds they took.
+    private long[] runIteration(LongSupplier op) {
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink += op.getAsLong();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return new long[] { calls, elapsed };
+    }
+
+    public void runSearchBenchmarks() {
+        for (String[] position : POSITIONS) {
+            String name = "Minimax.getBestMove/" + position[0] + "/" + position[1];
+            if (!name.contains(filter))
+                continue;
+            Board board = new Board(position[2], players);
+            long nanos = Long.MAX_VALUE;
+            long nodes = 0;
+            long bytes = 0;
+            int col = -1;
+            // best of a few cold solves, the table is cleared before each one.
+            for (int run = 0; run < SEARCH_RUNS; run++) {
+                clearTable();
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                col = minimax.findBestMove(board);
+                long elapsed = System.nanoTime() - start;
+                if (elapsed < nanos) {
+                    nanos = elapsed;
+                    nodes = minimax.stats.nodes;
+                    bytes = allocatedBytes() - allocatedBefore;
+                }
+            }
+            double nodesPerSec = nodes * 1e9 / nanos;
+            System.out.printf("%-28s %-8s %-6s %12.3f ms  %,12d nodes  %,14.0f nodes/s  %s%n", "Minimax.getBestMove",
+                    position[0], position[1], nanos / 1e6, nodes, nodesPerSec, position[2]);
+            results.add(String.format(
+                    "{\"benchmark\": \"Minimax.getBestMove\", \"phase\": \"%s\", \"difficulty\": \"%s\", \"position\": \"%s\", \"bestMove\": %d, \"timeToSolveMs\": %.3f, \"nodes\": %d, \"nodesPerSec\": %.1f, \"bytesPerNode\": %.3f}",
+                    position[0], position[1], position[2], col, nanos / 1e6, nodes, nodesPerSec,
+                    nodes == 0 ? 0.0 : (double) bytes / nodes));
+        }
+    }
+
+    // bytes allocated by the current thread so far, 0 if the JVM can't tell.
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public void writeJson(String output, String label) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"label\": \"").append(label).append("\",\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append("    ").append(results.get(i)).append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        Files.write(Paths.get(output), json.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + output);
+    }
+}
@@ -0,0 +1,337 @@
+import java.util.Random;
+
+public class BitBoard implements Cells {
+    /*
+     * Compact position used by the search. Each player's tokens are stored in a
+     * 64-bit mask, column by column, with one extra (always empty) bit on top of
+     * every column so that shifting a mask never carries a token over into the
+     * next column.
+     *
+     * bit layout:
+     * 6 13 20 27 34 41 48
+     * 5 12 19 26 33 40 47
+     * 4 11 18 25 32 39 46
+     * 3 10 17 24 31 38 45
+     * 2  9 16 23 30 37 44
+     * 1  8 15 22 29 36 43
+     * 0  7 14 21 28 35 42
+     */
+    public final static int WIDTH = Board.WIDTH;
+    public final static int HEIGHT = Board.HEIGHT;
+    public final static int H1 = HEIGHT + 1;
+    public final static int SIZE = WIDTH * HEIGHT;
+    // bottom cell of every column, and every cell of the board (without the
+    // empty bits on top).
+    public final static long BOTTOM_MASK = bottomMask();
+    public final static long BOARD_MASK = BOTTOM_MASK * ((1L << HEIGHT) - 1);
+
+    // tokens of player 1 and player 2.
+    public long[] boards = new long[2];
+    // index of the next free bit in each column.
+    public int[] height = new int[WIDTH];
+    // columns played on this bitboard, used to undo moves.
+    public int[] moves = new int[SIZE];
+    public int moveCount;
+    // zobrist hash of the position, updated incrementally on play and undo.
+    public long hash;
+    // hash of the mirror image of the position (columns reversed). a position
+    // and its mirror have the same value, so caches look positions up by the
+    // smaller of the two, see canonicalHash.
+    public long mirrorHash;
+    // empty cells that would complete four for player 1 and player 2, stored per
+    // move count (index 2 * moveCount + player) so play only updates the mover's
+    // mask and undo doesn't have to do anything.
+    public long[] threats = new long[2 * (SIZE + 1)];
+
+    // random keys for every player and cell, seeded so hashes are the same in
+    // every run.
+    public final static long[][] ZOBRIST = new long[2][WIDTH * H1];
+    static {
+        Random random = new Random(0x436F6E6E656374L);
+        for (int p = 0; p < 2; p++)
+            for (int i = 0; i < WIDTH * H1; i++)
+                ZOBRIST[p][i] = random.nextLong();
+    }
+
+    public BitBoard() {
+        for (int col = 0; col < WIDTH; col++)
+            height[col] = col * H1;
+        this.moveCount = 0;
+        this.hash = 0;
+        this.mirrorHash = 0;
+    }
+
+    // convert the board model into a bitboard at the start of a search. moves
+    // already on the board are not recorded and can't be undone.
+    public BitBoard(Board board) {
+        this();
+        for (int col = 0; col < WIDTH; col++) {
+            for (int row = 0; row < HEIGHT && board.grid[row][col] != 0; row++)
+                place(board.grid[row][col] == 1 ? 0 : 1, col);
+        }
+        updateThreats();
+    }
+
+    // plays a move history of column digits, like "3342". throws
+    // IllegalArgumentException at the first move that isn't a column, is in a
+    // full column or comes after a win.
+    public static BitBoard fromMoves(String moves) {
+        BitBoard position = new BitBoard();
+        for (int i = 0; i < moves.length(); i++) {
+            int col = moves.charAt(i) - '0';
+            if (col < 0 || col >= WIDTH || !position.canPlay(col) || position.lastMoveWon())
+                throw new IllegalArgumentException("invalid move at index " + i);
+            position.play(col);
+        }
+        return position;
+    }
+
+    // rebuilds a position from its key. like a position converted from a Board it
+    // has no move history.
+    public static BitBoard fromKey(long key) {
+        BitBoard position = new BitBoard();
+        // each column of the key is the column's mask, 2^height - 1, plus the tokens
+        // of the player to move, which are less than 2^height. so the height is
+        // the highest set bit of the column + 1.
+        int moveCount = 0;
+        int[] heights = new int[WIDTH];
+        for (int col = 0; col < WIDTH; col++) {
+            int column = (int) (key >>> (col * H1)) & ((1 << H1) - 1);
+            heights[col] = 31 - Integer.numberOfLeadingZeros(column + 1);
+            moveCount += heights[col];
+        }
+        int mover = moveCount & 1;
+        for (int col = 0; col < WIDTH; col++) {
+            long column = (key >>> (col * H1)) & ((1L << H1) - 1);
+            long own = column - ((1L << heights[col]) - 1);
+            for (int row = 0; row < heights[col]; row++)
+                position.place(((own >>> row) & 1) != 0 ? mover : 1 - mover, col);
+        }
+        position.updateThreats();
+        return position;
+    }
+
+    // puts a token on top of col without recording a move.
+    private void place(int player, int col) {
+        hash ^= ZOBRIST[player][height[col]];
+        mirrorHash ^= ZOBRIST[player][mirrorIndex(col, height[col])];
+        boards[player] |= 1L << height[col]++;
+        moveCount++;
+    }
+
+    private void updateThreats() {
+        threats[2 * moveCount] = winningCells(boards[0], mask());
+        threats[2 * moveCount + 1] = winningCells(boards[1], mask());
+    }
+
+    private static long bottomMask() {
+        long mask = 0;
+        for (int col = 0; col < WIDTH; col++)
+            mask |= 1L << (col * H1);
+        return mask;
+    }
+
+    public BitBoard copy() {
+        BitBoard duplicate = new BitBoard();
+        duplicate.boards = boards.clone();
+        duplicate.height = height.clone();
+        duplicate.moves = moves.clone();
+        duplicate.moveCount = moveCount;
+        duplicate.hash = hash;
+        duplicate.mirrorHash = mirrorHash;
+        duplicate.threats = threats.clone();
+        return duplicate;
+    }
+
+    public boolean canPlay(int col) {
+        return height[col] < col * H1 + HEIGHT;
+    }
+
+    public void play(int col) {
+        int player = moveCount & 1;
+        long move = 1L << height[col];
+        hash ^= ZOBRIST[player][height[col]];
+        mirrorHash ^= ZOBRIST[player][mirrorIndex(col, height[col]++)];
+        boards[player] ^= move;
+        moves[moveCount++] = col;
+        // only the mover can get new threats, the opponent just loses the cell
+        // that was played.
+        int i = 2 * moveCount;
+        threats[i + player] = winningCells(boards[player], boards[0] | boards[1]);
+        threats[i + 1 - player] = threats[i - 2 + 1 - player] & ~move;
+    }
+
+    public void undo() {
+        int col = moves[--moveCount];
+        boards[moveCount & 1] ^= 1L << --height[col];
+        hash ^= ZOBRIST[moveCount & 1][height[col]];
+        mirrorHash ^= ZOBRIST[moveCount & 1][mirrorIndex(col, height[col])];
+    }
+
+    // bit index of the cell mirroring bit i of column col.
+    private static int mirrorIndex(int col, int i) {
+        return i + (WIDTH - 1 - 2 * col) * H1;
+    }
+
+    public long canonicalHash() {
+        return Math.min(hash, mirrorHash);
+    }
+
+    // true if canonicalHash is the mirror's hash, columns read from or written to
+    // a cache have to be mirrored then.
+    public boolean isMirrored() {
+        return mirrorHash < hash;
+    }
+
+    // true if the position is its own mirror image, the moves right of the center
+    // column are then the same as the ones left of it.
+    public boolean isSymmetric() {
+        return mirror(boards[0]) == boards[0] && mirror(boards[1]) == boards[1];
+    }
+
+    public static int mirrorCol(int col) {
+        return WIDTH - 1 - col;
+    }
+
+    // mask with its columns in reverse order.
+    public static long mirror(long bb) {
+        long column = (1L << H1) - 1;
+        long mirrored = 0;
+        for (int col = 0; col < WIDTH; col++)
+            mirrored |= ((bb >>> (col * H1)) & column) << (mirrorCol(col) * H1);
+        return mirrored;
+    }
+
+    // unique key of the position: the tokens of the player to move added to the
+    // mask of all tokens. fits in 49 bits.
+    public long key() {
+        return boards[moveCount & 1] + mask();
+    }
+
+    // smaller of the key and the key of the mirrored position. the key's columns
+    // don't carry into each other, so mirroring the key mirrors the position.
+    public long canonicalKey() {
+        long key = key();
+        return Math.min(key, mirror(key));
+    }
+
+    public long mask() {
+        return boards[0] | boards[1];
+    }
+
+    // cells the next move can be played in.
+    public long playable() {
+        return (mask() + BOTTOM_MASK) & BOARD_MASK;
+    }
+
+    // the cell a token played in col would land in.
+    public long moveBit(int col) {
+        return 1L << height[col];
+    }
+
+    public boolean canWinNext() {
+        return (threats(moveCount & 1) & playable()) != 0;
+    }
+
+    // cells the player to move can play in without the opponent winning with its
+    // next move: if the opponent threatens to win only the block is left, and a
+    // move right below an opponent threat is never one. 0 if every move loses,
+    // assumes the player to move can't win right away.
+    public long nonLosingMoves() {
+        long possible = playable();
+        long opponentThreats = threats(1 - (moveCount & 1));
+        long forced = possible & opponentThreats;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0)
+                return 0; // two threats can't both be blocked.
+            possible = forced;
+        }
+        return possible & ~(opponentThreats >>> 1);
+    }
+
+    // empty cells that would complete four for player (0 or 1).
+    public long threats(int player) {
+        return threats[2 * moveCount + player];
+    }
+
+    // returns 1 for player 1, -1 for player 2 and 0 for an empty cell, matching
+    // the values used by Board.grid.
+    public int cell(int row, int col) {
+        long bit = 1L << (col * H1 + row);
+        if ((boards[0] & bit) != 0)
+            return 1;
+        if ((boards[1] & bit) != 0)
+            return -1;
+        return 0;
+    }
+
+    // row the next token in a column would land in, -1 if the column is full.
+    public int checkAvailableMove(int col) {
+        return canPlay(col) ? height[col] - col * H1 : -1;
+    }
+
+    public boolean lastMoveWon() {
+        return moveCount > 0 && isWin(boards[(moveCount - 1) & 1]);
+    }
+
+    /*
+     * Shift-and-mask test for four in a row. Anding a mask with itself shifted by
+     * one step in a direction leaves the tokens that have a neighbour in that
+     * direction, doing it again with a two step shift leaves the starts of chains
+     * of four.
+     */
+    public static boolean isWin(long bb) {
+        // horizontal
+        long m = bb & (bb >> H1);
+        if ((m & (m >> (2 * H1))) != 0)
+            return true;
+        // diagonal '\'
+        m = bb & (bb >> HEIGHT);
+        if ((m & (m >> (2 * HEIGHT))) != 0)
+            return true;
+        // diagonal '/'
+        m = bb & (bb >> (H1 + 1));
+        if ((m & (m >> (2 * (H1 + 1)))) != 0)
+            return true;
+        // vertical
+        m = bb & (bb >> 1);
+        return (m & (m >> 2)) != 0;
+    }
+
+    /*
+     * Empty cells that complete four for the tokens in bb: for every direction the
+     * three cells on one side of a cell, two on one side and one on the other, and
+     * so on. Same shifts as isWin, done for both directions.
+     */
+    public static long winningCells(long bb, long mask) {
+        // vertical, only the cell on top of three tokens.
+        long r = (bb << 1) & (bb << 2) & (bb << 3);
+        for (int step = HEIGHT; step <= H1 + 1; step++) {
+            // horizontal (H1) and both diagonals (HEIGHT, H1 + 1).
+            long p = (bb << step) & (bb << 2 * step);
+            r |= p & (bb << 3 * step);
+            r |= p & (bb >>> step);
+            p = (bb >>> step) & (bb >>> 2 * step);
+            r |= p & (bb << step);
+            r |= p & (bb >>> 3 * step);
+        }
+        return r & (BOARD_MASK ^ mask);
+    }
+
+    // ordering score of col for the player to move: a winning move first, then
+    // blocking the opponent's win, then by the number of threats the move leaves.
+    public int threatScore(int col) {
+        int player = moveCount & 1;
+        long move = 1L << height[col];
+        if ((threats(player) & move) != 0)
+            return 2 * SIZE + 1;
+        if ((threats(1 - player) & move) != 0)
+            return 2 * SIZE;
+        return Long.bitCount(winningCells(boards[player] | move, mask() | move));
+    }
+
+    // same open chain scoring as Board.evalMoveScore, see there for details.
+    public int evalMoveScore(int col, int target) {
+        return Board.evalMoveScore(this, col, target);
+    }
+}
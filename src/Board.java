@@ -1,8 +1,7 @@
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Stack;
 
-public class Board {
+public class Board implements Cells {
     public final static int WIDTH = 7;
     public final static int HEIGHT = 6;
     public int[][] grid;
@@ -17,6 +16,11 @@ public class Board {
     public Player[] players = new Player[2];
     private int currPlayer;
 
+    // journal every move is appended to and the game's id in it, see GameJournal.
+    // null if the game isn't journaled.
+    public GameJournal journal;
+    public int journalId;
+
     public Board() {
         this.grid = new int[HEIGHT][WIDTH];
         this.moveCount = 0;
@@ -58,15 +62,17 @@ public class Board {
     }
 
     public int[] possibleMoves() {
-        ArrayList<Integer> moveList = new ArrayList<Integer>();
+        int count = 0;
         for (int i = 0; i < WIDTH; i++) {
-            if (grid[5][i] == 0)
-                moveList.add(i);
+            if (grid[HEIGHT - 1][i] == 0)
+                count++;
         }
 
-        int[] result = new int[moveList.size()];
-        for (int i = 0; i < moveList.size(); i++) {
-            result[i] = moveList.get(i);
+        int[] result = new int[count];
+        count = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            if (grid[HEIGHT - 1][i] == 0)
+                result[count++] = i;
         }
         return result;
     }
@@ -91,11 +97,17 @@ public class Board {
         return -1;
     }
 
+    public int cell(int row, int col) {
+        return grid[row][col];
+    }
+
     public void makeMove(Move move) {
         int value = move.player == players[0] ? 1 : -1;
         grid[move.row][move.col] = value;
         moveHistory += move.col;
         moves.push(move);
+        if (journal != null)
+            journal.move(journalId, moveCount, move.col);
         moveCount++;
         // switchPlayer();
         // removed the printing because it was slowing down minimax,
@@ -106,7 +118,19 @@ public class Board {
     public void undoMove() {
         Move lastMove = moves.pop();
         grid[lastMove.row][lastMove.col] = 0;
+        moveHistory = moveHistory.substring(0, moveHistory.length() - 1);
         moveCount--;
+        if (journal != null)
+            journal.undo(journalId, moveCount);
+    }
+
+    // starts journaling the game as a new game of the journal, the moves played so
+    // far are appended first.
+    public void attachJournal(GameJournal journal) {
+        this.journal = journal;
+        this.journalId = journal.newGame();
+        for (int i = 0; i < moveHistory.length(); i++)
+            journal.move(journalId, i, moveHistory.charAt(i) - '0');
     }
 
 
@@ -260,8 +284,18 @@ public class Board {
     }
 
     public int evalMoveScore(int col, int target) {
+        return evalMoveScore(this, col, target);
+    }
+
+    // powers of the amplifying factor a = 10 below, a chain never counts more than
+    // 8 tokens (up to 4 on each side in a row).
+    private final static int[] POWERS = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000 };
+
+    // open chain score of playing col on any board, BitBoard's evalMoveScore uses
+    // it as well.
+    public static int evalMoveScore(Cells board, int col, int target) {
         int score = 0;
-        int row = checkAvailableMove(col);
+        int row = board.checkAvailableMove(col);
         if (row == -1) {
             return score;
         }
@@ -280,31 +314,30 @@ public class Board {
          */
 
         int counter = 0;
-        int a = 10;
         // get vertical score
-        for (int i = row - 1; i >= 0 && grid[i][col] != 0 && i >= row - 4; i--) {
-            int m = grid[i][col] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
+        for (int i = row - 1; i >= 0 && board.cell(i, col) != 0 && i >= row - 4; i--) {
+            int m = board.cell(i, col) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
             counter++;
-            if (i - 1 >= 0 && grid[i][col] != grid[i - 1][col])
+            if (i - 1 >= 0 && board.cell(i, col) != board.cell(i - 1, col))
                 break;
         }
         counter = 0;
         // get horizontal score
         // check left
-        for (int hL = col - 1; hL >= 0 && hL >= col - 4 && grid[row][hL] != 0; hL--) {
-            int m = grid[row][hL] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
+        for (int hL = col - 1; hL >= 0 && hL >= col - 4 && board.cell(row, hL) != 0; hL--) {
+            int m = board.cell(row, hL) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
             counter++;
-            if (hL - 1 >= 0 && grid[row][hL] != grid[row][hL - 1])
+            if (hL - 1 >= 0 && board.cell(row, hL) != board.cell(row, hL - 1))
                 break;
         }
         // check right
-        for (int hR = col + 1; hR < WIDTH && hR <= col + 4 && grid[row][hR] != 0; hR++) {
-            int m = grid[row][hR] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
+        for (int hR = col + 1; hR < WIDTH && hR <= col + 4 && board.cell(row, hR) != 0; hR++) {
+            int m = board.cell(row, hR) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
             counter++;
-            if (hR + 1 < WIDTH && grid[row][hR] != grid[row][hR + 1])
+            if (hR + 1 < WIDTH && board.cell(row, hR) != board.cell(row, hR + 1))
                 break;
         }
 
@@ -313,9 +346,9 @@ public class Board {
         // up and right
         int drx = col + 1, dry = row + 1;
         for (counter = 0; drx < WIDTH && dry < HEIGHT && counter < 4; counter++, drx++, dry++) {
-            int m = grid[dry][drx] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
-            if (drx + 1 < WIDTH && dry + 1 < HEIGHT && grid[dry][drx] != grid[dry + 1][drx + 1])
+            int m = board.cell(dry, drx) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
+            if (drx + 1 < WIDTH && dry + 1 < HEIGHT && board.cell(dry, drx) != board.cell(dry + 1, drx + 1))
                 break;
         }
 
@@ -323,9 +356,9 @@ public class Board {
         drx = col - 1;
         dry = row - 1;
         for (counter = 0; drx >= 0 && dry >= 0 && counter < 4; counter++, drx--, dry--) {
-            int m = grid[dry][drx] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
-            if (drx - 1 >= 0 && dry - 1 >= 0 && grid[dry][drx] != grid[dry - 1][drx - 1])
+            int m = board.cell(dry, drx) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
+            if (drx - 1 >= 0 && dry - 1 >= 0 && board.cell(dry, drx) != board.cell(dry - 1, drx - 1))
                 break;
         }
 
@@ -333,18 +366,18 @@ public class Board {
         // up and left
         int dlx = col - 1, dly = row + 1;
         for (counter = 0; dlx >= 0 && dly < HEIGHT && counter < 4; counter++, dlx--, dly++) {
-            int m = grid[dly][dlx] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
-            if (dlx - 1 >= 0 && dly + 1 < HEIGHT && grid[dly][dlx] != grid[dly + 1][dlx - 1])
+            int m = board.cell(dly, dlx) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
+            if (dlx - 1 >= 0 && dly + 1 < HEIGHT && board.cell(dly, dlx) != board.cell(dly + 1, dlx - 1))
                 break;
         }
         // down and right
         dlx = col + 1;
         dly = row - 1;
         for (counter = 0; dlx < WIDTH && dly >= 0 && counter < 4; counter++, dlx++, dly--) {
-            int m = grid[dly][dlx] == target ? 2 : 1;
-            score += (counter * m * (Math.pow(a, counter)));
-            if (dlx + 1 < WIDTH && dly - 1 >= 0 && grid[dly][dlx] != grid[dly - 1][dlx + 1])
+            int m = board.cell(dly, dlx) == target ? 2 : 1;
+            score += counter * m * POWERS[counter];
+            if (dlx + 1 < WIDTH && dly - 1 >= 0 && board.cell(dly, dlx) != board.cell(dly - 1, dlx + 1))
                 break;
         }
         return score;
@@ -0,0 +1,9 @@
+// read access to the cells of a board, so code that scores a board works on the
+// Board grid and on a BitBoard alike.
+public interface Cells {
+    // 1 for player 1, -1 for player 2 and 0 for an empty cell, as in Board.grid.
+    int cell(int row, int col);
+
+    // row the next token in col would land in, -1 if the column is full.
+    int checkAvailableMove(int col);
+}
@@ -0,0 +1,18 @@
+public enum Difficulty {
+    // depth and node caps of the AI's search and the evaluation used at the depth
+    // limit. PERFECT solves every position to the end of the game.
+    EASY(2, 2_000, new OpenChainEvaluator()),
+    MEDIUM(6, 50_000, new ThreatEvaluator()),
+    HARD(12, 2_000_000, new ThreatEvaluator()),
+    PERFECT(BitBoard.SIZE, Long.MAX_VALUE, new ThreatEvaluator());
+
+    public final int maxDepth;
+    public final long maxNodes;
+    public final Evaluator evaluator;
+
+    Difficulty(int maxDepth, long maxNodes, Evaluator evaluator) {
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.evaluator = evaluator;
+    }
+}
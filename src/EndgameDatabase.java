@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class EndgameDatabase extends OpeningBook {
+    /*
+     * Solved late positions, read from a file written by EndgameDatabaseBuilder.
+     * It has the opening book's layout and entries (see OpeningBook) with its own
+     * magic, and the max ply field holds the most empty cells a position in it
+     * has. A score is the exact Minimax score, the move count of a win in it is
+     * the distance to the end of the game.
+     * It holds the positions with exactly maxEmpty empty cells the builder was
+     * seeded with and all positions below them, so Minimax probes every node
+     * with at most maxEmpty empty cells, a hit ends the search of that subtree.
+     * Seeded with 1000 random games it only covers a small part of what a
+     * search reaches: solving positions 4 plies before the seeds hits it a few
+     * hundred times and saves 2-3% of the nodes, but takes longer than without
+     * it (K=12: 14.6 MB, 65327 -> 63754 nodes, 20 -> 23 ms), the key has to be
+     * mirrored for every probe. Most probes miss, so the keys are also kept in
+     * a bloom filter of FILTER_BITS bits per record with two bits per key,
+     * which answers most misses (all but ~5%) with two array reads instead of
+     * a binary search through the file.
+     */
+    public final static int MAGIC = 0x43344547; // "C4EG"
+    public final static String DEFAULT_FILE = "endgame.db";
+    public final static int FILTER_BITS = 8;
+    // log2 of the largest filter, 2^30 bits take 128 MB. a larger database gets
+    // more false positives instead.
+    public final static int MAX_FILTER_LOG_BITS = 30;
+
+    public int maxEmpty;
+    private long[] filter;
+    private int filterShift;
+
+    public EndgameDatabase(Path path) throws IOException {
+        super(path, MAGIC, "endgame database");
+        maxEmpty = maxPly;
+        // an empty database has no filter, every probe misses.
+        if (size == 0)
+            return;
+        // a power of two number of bits, indexed by the top bits of the mixed key.
+        int bits = 64 - Long.numberOfLeadingZeros((long) size * FILTER_BITS - 1);
+        bits = Math.min(Math.max(6, bits), MAX_FILTER_LOG_BITS);
+        filter = new long[1 << (bits - 6)];
+        filterShift = 64 - bits;
+        for (int i = 0; i < size; i++) {
+            long mixed = key(i) * 0x9E3779B97F4A7C15L;
+            setBit(mixed >>> filterShift);
+            setBit(Long.rotateLeft(mixed, 32) >>> filterShift);
+        }
+    }
+
+    private void setBit(long bit) {
+        filter[(int) (bit >>> 6)] |= 1L << bit;
+    }
+
+    private boolean hasBit(long bit) {
+        return (filter[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public int probe(long key) {
+        if (filter == null)
+            return -1;
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        if (!hasBit(mixed >>> filterShift) || !hasBit(Long.rotateLeft(mixed, 32) >>> filterShift))
+            return -1;
+        return super.probe(key);
+    }
+
+    // loads the database from the working directory, returns null if there is none.
+    public static EndgameDatabase loadDefault() {
+        Path path = Paths.get(DEFAULT_FILE);
+        if (!Files.exists(path))
+            return null;
+        try {
+            return new EndgameDatabase(path);
+        } catch (IOException e) {
+            System.out.println("Could not load endgame database: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // true if positions at the move count are probed: the ones with at most
+    // maxEmpty empty cells.
+    public boolean covers(int moveCount) {
+        return BitBoard.SIZE - moveCount <= maxEmpty;
+    }
+}
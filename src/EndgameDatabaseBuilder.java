@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EndgameDatabaseBuilder {
+    /*
+     * Offline builder for the endgame database. All positions with at most K empty
+     * cells are far too many to enumerate (already ~10^10 with one empty cell),
+     * so the database holds positions games actually reach: the position with
+     * exactly K empty cells of every game in a game archive (.c4g, see
+     * SelfPlay), or of random games if no archive is given. These seeds and
+     * every position below them are solved exactly and written.
+     *
+     * The subtrees are small and every position in them is needed anyway, so
+     * instead of a search per position each seed is solved by one exhaustive
+     * minimax without pruning. Every position's score is computed once from its
+     * children's and memoized under its canonical key, which makes the score of
+     * each child known when its parent needs it. Seeds are spread over a thread
+     * pool sharing the memo, a position two workers reach at once is solved
+     * twice with the same result.
+     *
+     * After writing the file it reports the build time and size, and how much the
+     * database saves when solving the positions a few plies before the seeds.
+     * Nothing loads the database by default, set Minimax.endgame to use it.
+     *
+     * usage: java EndgameDatabaseBuilder <max empty cells, 1-41> [output file]
+     * [game archive | number of random games] [threads]
+     */
+    public final static int DEFAULT_RANDOM_GAMES = 1000;
+    // plies before the seeds the positions used to measure the database are at.
+    public final static int MEASURE_PLIES = 4;
+    public final static int MEASURE_POSITIONS = 200;
+
+    public static void main(String[] args) throws IOException {
+        // a seed needs at least one empty cell, and at least one move played to be
+        // reached by a game.
+        int maxEmpty = 0;
+        try {
+            if (args.length > 0)
+                maxEmpty = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+        }
+        if (maxEmpty < 1 || maxEmpty > BitBoard.SIZE - 1) {
+            System.out.println(
+                    "usage: java EndgameDatabaseBuilder <max empty cells, 1-" + (BitBoard.SIZE - 1)
+                            + "> [output file] [game archive | number of random games] [threads]");
+            return;
+        }
+        Path output = Paths.get(args.length > 1 ? args[1] : EndgameDatabase.DEFAULT_FILE);
+        String seeds = args.length > 2 ? args[2] : String.valueOf(DEFAULT_RANDOM_GAMES);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        List<int[]> games = seeds.endsWith(GameArchiveWriter.EXTENSION) ? readGames(Paths.get(seeds))
+                : randomGames(Integer.parseInt(seeds), BitBoard.SIZE - maxEmpty);
+        build(games, maxEmpty, threads, output);
+    }
+
+    public static void build(List<int[]> games, int maxEmpty, int threads, Path output) throws IOException {
+        if (maxEmpty < 1 || maxEmpty > BitBoard.SIZE - 1)
+            throw new IllegalArgumentException("max empty cells must be 1-" + (BitBoard.SIZE - 1) + ": " + maxEmpty);
+        int seedPly = BitBoard.SIZE - maxEmpty;
+        List<BitBoard> seeds = new ArrayList<BitBoard>();
+        List<BitBoard> before = new ArrayList<BitBoard>();
+        HashSet<Long> seen = new HashSet<Long>();
+        for (int[] moves : games) {
+            BitBoard seed = play(moves, seedPly);
+            if (seed != null && seen.add(seed.canonicalKey())) {
+                seeds.add(seed);
+                BitBoard earlier = play(moves, seedPly - MEASURE_PLIES);
+                if (earlier != null && before.size() < MEASURE_POSITIONS)
+                    before.add(earlier);
+            }
+        }
+        System.out.println("Solving the positions below " + seeds.size() + " seeds with at most " + maxEmpty
+                + " empty cells");
+
+        long startTime = System.nanoTime();
+        Map<Long, Integer> solved = new ConcurrentHashMap<Long, Integer>();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (BitBoard seed : seeds) {
+            results.add(pool.submit(() -> {
+                int score = solve(seed, solved);
+                if (done.incrementAndGet() % 1000 == 0)
+                    System.out.println("Solved " + done.get() + " / " + seeds.size() + " seeds, "
+                            + solved.size() + " positions");
+                return score;
+            }));
+        }
+        try {
+            for (Future<Integer> result : results)
+                result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Endgame database build failed", e);
+        } finally {
+            pool.shutdown();
+        }
+        double solveSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        // sort the records by key. every position solved is written, the seeds and
+        // the positions below them.
+        long[] keys = new long[solved.size()];
+        int i = 0;
+        for (long key : solved.keySet())
+            keys[i++] = key;
+        Arrays.sort(keys);
+        int[] entries = new int[keys.length];
+        for (i = 0; i < keys.length; i++)
+            entries[i] = solved.get(keys[i]);
+        OpeningBook.write(output, EndgameDatabase.MAGIC, maxEmpty, keys, entries);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long bytes = Files.size(output);
+        System.out.printf("K=%d: wrote %d positions to %s in %.1f s (%.1f s solving), %.2f MB%n", maxEmpty,
+                keys.length, output, seconds, solveSeconds, bytes / (1024.0 * 1024.0));
+
+        measure(new EndgameDatabase(output), before);
+    }
+
+    // exact score of a position that isn't over, from player 1's point of view
+    // like Minimax's. stores it for every position below it as well.
+    private static int solve(BitBoard position, Map<Long, Integer> solved) {
+        long key = position.canonicalKey();
+        Integer known = solved.get(key);
+        if (known != null)
+            return OpeningBook.score(known);
+        boolean isMax = position.moveCount % 2 == 0;
+        int bestScore = isMax ? -Minimax.INFINITY : Minimax.INFINITY;
+        int bestCol = -1;
+        for (int col : Minimax.columnOrder) {
+            if (!position.canPlay(col))
+                continue;
+            position.play(col);
+            int score;
+            if (position.lastMoveWon()) {
+                score = isMax ? Minimax.winScore(position.moveCount) : -Minimax.winScore(position.moveCount);
+            } else if (position.moveCount == BitBoard.SIZE) {
+                score = 0;
+            } else {
+                score = solve(position, solved);
+            }
+            position.undo();
+            if (isMax ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestCol = col;
+            }
+        }
+        // stored for the canonical position, mirrored if the key is the mirror's.
+        int col = position.key() == key ? bestCol : BitBoard.mirrorCol(bestCol);
+        solved.put(key, OpeningBook.entry(bestScore, col));
+        return bestScore;
+    }
+
+    // solves the positions with and without the database and prints the nodes and
+    // time both took, each with an empty table. both are run twice and the
+    // second run is reported, the first one warms up the JIT.
+    private static void measure(EndgameDatabase database, List<BitBoard> positions) {
+        if (positions.isEmpty())
+            return;
+        long[] nodes = new long[2];
+        long[] nanos = new long[2];
+        long hits = 0;
+        for (int run = 0; run < 4; run++) {
+            Minimax minimax = new Minimax();
+            minimax.endgame = run % 2 == 0 ? null : database;
+            nodes[run % 2] = nanos[run % 2] = hits = 0;
+            for (BitBoard position : positions) {
+                minimax.table.clear();
+                long start = System.nanoTime();
+                minimax.search(position);
+                nanos[run % 2] += System.nanoTime() - start;
+                nodes[run % 2] += minimax.stats.nodes;
+                hits += minimax.stats.endgameHits;
+            }
+        }
+        System.out.printf("solving %d positions %d plies before the seeds: %d nodes, %.1f ms without it; "
+                + "%d nodes, %.1f ms with it (%d hits)%n", positions.size(), MEASURE_PLIES, nodes[0], nanos[0] / 1e6,
+                nodes[1], nanos[1] / 1e6, hits);
+    }
+
+    // position after the first plies moves of the game, null if the game ended
+    // before it.
+    private static BitBoard play(int[] moves, int plies) {
+        if (plies < 0 || moves.length < plies)
+            return null;
+        BitBoard position = new BitBoard();
+        for (int i = 0; i < plies; i++) {
+            position.play(moves[i]);
+            if (position.lastMoveWon())
+                return null;
+        }
+        return position;
+    }
+
+    private static List<int[]> readGames(Path archive) throws IOException {
+        List<int[]> games = new ArrayList<int[]>();
+        try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+            while (reader.next())
+                games.add(Arrays.copyOf(reader.moves, reader.plies));
+        }
+        return games;
+    }
+
+    // games of random moves that go on for at least plies moves without a win.
+    private static List<int[]> randomGames(int count, int plies) {
+        Random random = new Random(count);
+        List<int[]> games = new ArrayList<int[]>();
+        while (games.size() < count) {
+            BitBoard position = new BitBoard();
+            int[] moves = new int[plies];
+            while (position.moveCount < plies && !position.lastMoveWon()) {
+                int col = random.nextInt(BitBoard.WIDTH);
+                if (position.canPlay(col)) {
+                    moves[position.moveCount] = col;
+                    position.play(col);
+                }
+            }
+            if (!position.lastMoveWon())
+                games.add(moves);
+        }
+        return games;
+    }
+}
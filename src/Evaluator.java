@@ -0,0 +1,8 @@
+// static score of a position at the depth limit of a search, from player 1's
+// point of view. scores have to stay within MAX_SCORE so they never look like a
+// win.
+public interface Evaluator {
+    int MAX_SCORE = Minimax.WIN_SCORE - BitBoard.SIZE - 1;
+
+    int evaluate(BitBoard position);
+}
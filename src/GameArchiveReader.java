@@ -0,0 +1,84 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GameArchiveReader implements Closeable {
+    /*
+     * Reads the games of an archive written by GameArchiveWriter one after the
+     * other. The fields of the current game are reused for the next one, so
+     * reading an archive doesn't allocate per game.
+     *
+     * usage: while (reader.next()) { ... reader.moves[0 .. reader.plies - 1] ... }
+     */
+    private final static int BUFFER_BYTES = 1 << 20;
+
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private boolean endOfFile;
+
+    // the current game.
+    public int id;
+    public int winner;
+    public int plies;
+    public int[] moves = new int[BitBoard.SIZE];
+
+    public GameArchiveReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.flip();
+        fill(GameArchiveWriter.HEADER_BYTES);
+        if (buffer.remaining() < GameArchiveWriter.HEADER_BYTES || buffer.getInt() != GameArchiveWriter.MAGIC) {
+            channel.close();
+            throw new IOException("Not a game archive: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != GameArchiveWriter.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported game archive version " + version + ": " + path);
+        }
+    }
+
+    // reads the next game, false at the end of the archive.
+    public boolean next() throws IOException {
+        fill(GameArchiveWriter.MAX_RECORD_BYTES);
+        if (!buffer.hasRemaining())
+            return false;
+        if (buffer.remaining() < 6)
+            throw new IOException("Truncated game archive");
+        // a game never has more moves than the board has cells, a larger count
+        // would overrun the moves array.
+        int count = buffer.get(buffer.position() + 5) & 0xFF;
+        if (count > BitBoard.SIZE)
+            throw new IOException("Corrupt game archive: game with " + count + " moves");
+        if (buffer.remaining() < 5 + GameCodec.movesBytes(count))
+            throw new IOException("Truncated game archive");
+        id = buffer.getInt();
+        winner = buffer.get();
+        plies = GameCodec.getMoves(buffer, moves);
+        return true;
+    }
+
+    public String moveHistory() {
+        return GameCodec.movesToString(moves, plies);
+    }
+
+    // reads from the channel until at least `bytes` bytes are buffered or the
+    // file ends.
+    private void fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes || endOfFile)
+            return;
+        buffer.compact();
+        while (buffer.position() < bytes && !endOfFile) {
+            if (channel.read(buffer) == -1)
+                endOfFile = true;
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,75 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GameArchiveWriter implements Closeable {
+    /*
+     * Streams finished games to a binary archive, read back by GameArchiveReader.
+     * Records are collected in a direct buffer and written to the channel in
+     * large blocks.
+     *
+     * file layout:
+     * header: magic (int), version (int)
+     * records: game id (int), winner (byte, GameRecord.winner), moves (see
+     * GameCodec.putMoves)
+     */
+    public final static int MAGIC = 0x43344741; // "C4GA"
+    public final static int VERSION = 1;
+    public final static int HEADER_BYTES = 8;
+    public final static String EXTENSION = ".c4g";
+    public final static int MAX_RECORD_BYTES = 4 + 1 + GameCodec.MAX_MOVES_BYTES;
+    private final static int BUFFER_BYTES = 1 << 20;
+
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    public long count;
+
+    public GameArchiveWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    public void write(GameRecord record) throws IOException {
+        write(record.id, record.winner, record.moves);
+    }
+
+    public void write(int id, int winner, CharSequence moves) throws IOException {
+        if (buffer.remaining() < MAX_RECORD_BYTES)
+            flush();
+        int start = buffer.position();
+        buffer.putInt(id).put((byte) winner);
+        try {
+            GameCodec.putMoves(buffer, moves);
+        } catch (IllegalArgumentException e) {
+            // drops the record's id and winner as well.
+            buffer.position(start);
+            throw e;
+        }
+        count++;
+    }
+
+    public void write(int id, int winner, int[] moves, int plies) throws IOException {
+        if (buffer.remaining() < MAX_RECORD_BYTES)
+            flush();
+        buffer.putInt(id).put((byte) winner);
+        GameCodec.putMoves(buffer, moves, plies);
+        count++;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,88 @@
+import java.nio.ByteBuffer;
+
+public class GameCodec {
+    /*
+     * Compact binary encoding of positions and move lists.
+     * A position is its BitBoard key, a single long (see BitBoard.key and
+     * BitBoard.fromKey). A move list is its length in one byte followed by the
+     * columns at 3 bits each, packed from the lowest bit of the first byte up, so
+     * a full game of 42 moves takes 17 bytes instead of 42 characters.
+     */
+    public final static int BITS_PER_MOVE = 3;
+    public final static int MAX_MOVES_BYTES = 1 + (BitBoard.SIZE * BITS_PER_MOVE + 7) / 8;
+
+    public static long encodePosition(BitBoard position) {
+        return position.key();
+    }
+
+    public static BitBoard decodePosition(long key) {
+        return BitBoard.fromKey(key);
+    }
+
+    // bytes putMoves writes for a list of this many moves.
+    public static int movesBytes(int count) {
+        return 1 + (count * BITS_PER_MOVE + 7) / 8;
+    }
+
+    public static void putMoves(ByteBuffer out, int[] moves, int count) {
+        putMoves(out, moves, null, count);
+    }
+
+    // moves as a move history string (columns 0-6, one character each). throws
+    // IllegalArgumentException for a character that isn't a column or a history
+    // longer than a game, without writing anything.
+    public static void putMoves(ByteBuffer out, CharSequence moves) {
+        putMoves(out, null, moves, moves.length());
+    }
+
+    // packs the columns of either moves or history, reading the characters as they
+    // are packed.
+    private static void putMoves(ByteBuffer out, int[] moves, CharSequence history, int count) {
+        if (count > BitBoard.SIZE)
+            throw new IllegalArgumentException("move list of " + count + " moves");
+        int start = out.position();
+        out.put((byte) count);
+        int bits = 0;
+        int pending = 0;
+        for (int i = 0; i < count; i++) {
+            int col = moves != null ? moves[i] : history.charAt(i) - '0';
+            if (col < 0 || col >= BitBoard.WIDTH) {
+                out.position(start);
+                throw new IllegalArgumentException("invalid move at index " + i);
+            }
+            pending |= col << bits;
+            bits += BITS_PER_MOVE;
+            if (bits >= 8) {
+                out.put((byte) pending);
+                pending >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0)
+            out.put((byte) pending);
+    }
+
+    // reads a move list into moves, returns the number of moves.
+    public static int getMoves(ByteBuffer in, int[] moves) {
+        int count = in.get() & 0xFF;
+        int bits = 0;
+        int pending = 0;
+        for (int i = 0; i < count; i++) {
+            if (bits < BITS_PER_MOVE) {
+                pending |= (in.get() & 0xFF) << bits;
+                bits += 8;
+            }
+            moves[i] = pending & ((1 << BITS_PER_MOVE) - 1);
+            pending >>>= BITS_PER_MOVE;
+            bits -= BITS_PER_MOVE;
+        }
+        return count;
+    }
+
+    public static String movesToString(int[] moves, int count) {
+        char[] history = new char[count];
+        for (int i = 0; i < count; i++)
+            history[i] = (char) ('0' + moves[i]);
+        return new String(history);
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.Random;
+
+public class GameEngine {
+    /*
+     * Headless game loop, the same rules as Main.playGame without the console. Only
+     * players that choose their own moves (AIPlayer, RandomPlayer) can take part.
+     * A number of random opening moves can be played first so that games between
+     * deterministic players differ.
+     * With a journal every game's moves are journaled while it runs, see
+     * GameJournal.
+     */
+    public int randomOpeningPlies;
+    // may be null.
+    public GameJournal journal;
+    private Random random;
+
+    public GameEngine(int randomOpeningPlies, long seed) {
+        this.randomOpeningPlies = randomOpeningPlies;
+        this.random = new Random(seed);
+    }
+
+    public GameEngine() {
+        this(0, 0);
+    }
+
+    public GameRecord play(int id, Player p1, Player p2) {
+        Board board = new Board(p1, p2);
+        if (journal != null)
+            board.attachJournal(journal);
+        long[] moveNanos = new long[Board.WIDTH * Board.HEIGHT];
+        int plies = 0;
+        Move lastMove = null;
+        while (board.moveCount < Board.WIDTH * Board.HEIGHT) {
+            Player player = board.getCurrentPlayer();
+            long start = System.nanoTime();
+            Move move;
+            if (board.moveCount < randomOpeningPlies) {
+                int[] moves = board.possibleMoves();
+                move = new Move(moves[random.nextInt(moves.length)], player);
+            } else {
+                move = chooseMove(player, board);
+            }
+            moveNanos[plies++] = System.nanoTime() - start;
+
+            if (board.checkAvailableMove(move) == -1) {
+                throw new IllegalStateException(player.name + " chose full column " + move.col);
+            }
+            board.makeMove(move);
+            board.switchPlayer();
+            lastMove = move;
+            if (board.checkGameWon(move.row, move.col)) {
+                break;
+            }
+        }
+        int winner = GameRecord.DRAW;
+        if (lastMove != null && board.checkGameWon(lastMove.row, lastMove.col)) {
+            winner = lastMove.player == p1 ? 0 : 1;
+        }
+        if (journal != null)
+            journal.finish(board.journalId);
+        long[] timings = new long[plies];
+        System.arraycopy(moveNanos, 0, timings, 0, plies);
+        return new GameRecord(id, p1.name, p2.name, board.moveHistory, winner, timings);
+    }
+
+    private Move chooseMove(Player player, Board board) {
+        if (player instanceof AIPlayer)
+            return ((AIPlayer) player).getMove(board);
+        if (player instanceof RandomPlayer)
+            return ((RandomPlayer) player).getMove(board);
+        throw new IllegalArgumentException("Headless games need AI or random players, got " + player.name);
+    }
+}
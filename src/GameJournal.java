@@ -0,0 +1,504 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+public class GameJournal implements Closeable {
+    /*
+     * Append-only journal of the moves of running games, so the boards can be
+     * rebuilt after the process dies. A Board with a journal (see
+     * Board.attachJournal) appends every makeMove and undoMove, finish marks a
+     * game as over.
+     *
+     * Appending only copies a record into a buffer. A background thread writes
+     * what was appended and forces it to disk every COMMIT_MILLIS (group
+     * commit), so all games share one write and one fsync and a move never waits
+     * for the disk. sync waits until everything appended before it is on disk,
+     * for callers that need that.
+     *
+     * The journal is a directory of numbered segment files. Once the segment
+     * being written reaches segmentBytes the next one is started, and once
+     * COMPACT_SEGMENTS segments are closed they are compacted on another thread:
+     * replayed and rewritten as one snapshot segment holding only the moves of
+     * the games that are still running. Opening a journal replays it from the
+     * newest snapshot, recoveredGames are the games that never finished, and
+     * then starts a new segment.
+     *
+     * segment layout:
+     * header: magic (int), version (int), flags (int, SNAPSHOT)
+     * commits: length of the records (int), crc32 of the records (int), records
+     * record: game id (int), ply (byte), column (byte)
+     * the column is the move played at that ply, UNDO if the game went back to
+     * that ply (a new game starts with an UNDO to ply 0) or FINISHED. Records
+     * name their ply, so replaying one twice changes nothing. A commit cut off
+     * by a crash fails its length or checksum check, replaying a segment stops
+     * there.
+     */
+    public final static int MAGIC = 0x43344A4C; // "C4JL"
+    public final static int VERSION = 1;
+    public final static int HEADER_BYTES = 12;
+    public final static int COMMIT_HEADER_BYTES = 8;
+    public final static int RECORD_BYTES = 6;
+    public final static int SNAPSHOT = 1;
+    public final static int UNDO = 0x7E;
+    public final static int FINISHED = 0x7F;
+    public final static long COMMIT_MILLIS = 5;
+    public final static long DEFAULT_SEGMENT_BYTES = 16 << 20;
+    public final static int COMPACT_SEGMENTS = 4;
+    private final static int BUFFER_BYTES = 1 << 20;
+    private final static String SEGMENT_PREFIX = "journal-";
+    private final static String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    public final long segmentBytes;
+    private AtomicInteger nextId = new AtomicInteger();
+    private Map<Integer, String> recovered = new TreeMap<Integer, String>();
+
+    // appended records wait in pending, the committing thread swaps it with spare
+    // and writes that. both and the counters are guarded by this.
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_BYTES);
+    private long appended;
+    private long durable;
+    private boolean commitRequested;
+    private boolean closed;
+    private IOException failure;
+    private Thread committer;
+
+    // the segment being written and the oldest one replay needs, guarded by
+    // fileLock.
+    private final Object fileLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private long firstSegment;
+    private ByteBuffer commitHeader = ByteBuffer.allocate(COMMIT_HEADER_BYTES);
+    private Thread compactor;
+    private final Object compactLock = new Object();
+    // highest game id seen by replay.
+    private int maxId = -1;
+
+    public long commits;
+    public long compactions;
+
+    public GameJournal(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        List<Long> numbers = segmentNumbers(directory);
+        long last = numbers.isEmpty() ? -1 : numbers.get(numbers.size() - 1);
+        Map<Integer, Game> games = new TreeMap<Integer, Game>();
+        firstSegment = replay(last, games);
+        for (Map.Entry<Integer, Game> game : games.entrySet())
+            recovered.put(game.getKey(), game.getValue().moveHistory());
+        nextId.set(maxId + 1);
+        // segments older than the snapshot and snapshots never moved in place are
+        // left over from a compaction that was cut off.
+        for (long number : numbers) {
+            if (number < firstSegment)
+                Files.deleteIfExists(segmentPath(number));
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*.tmp")) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+        segment = last + 1;
+        channel = openSegment(segmentPath(segment), 0);
+        committer = new Thread(this::commitLoop, "journal");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    public GameJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    // games that were still running when the journal was last written, by id, as
+    // move histories (the format Board(String, Player[]) loads).
+    public Map<Integer, String> recoveredGames() {
+        return Collections.unmodifiableMap(recovered);
+    }
+
+    // a board with the moves of a recovered game, its moves are journaled again.
+    public Board restore(int id, Player[] players) {
+        String moves = recovered.get(id);
+        if (moves == null)
+            throw new IllegalArgumentException("No running game " + id + " in the journal");
+        Board board = new Board(moves, players);
+        board.journal = this;
+        board.journalId = id;
+        return board;
+    }
+
+    // a new game's id. the game is journaled before its first move, so it is
+    // recovered even if it had none.
+    public int newGame() {
+        int id = nextId.getAndIncrement();
+        append(id, 0, UNDO);
+        return id;
+    }
+
+    public void move(int id, int ply, int col) {
+        append(id, ply, col);
+    }
+
+    public void undo(int id, int ply) {
+        append(id, ply, UNDO);
+    }
+
+    public void finish(int id) {
+        append(id, 0, FINISHED);
+    }
+
+    private synchronized void append(int id, int ply, int col) {
+        if (failure != null)
+            throw new UncheckedIOException("Journal write failed", failure);
+        boolean interrupted = false;
+        // the buffer only fills up if the disk can't keep up, wait for a commit
+        // then.
+        while (pending.remaining() < RECORD_BYTES && !closed) {
+            commitRequested = true;
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (closed)
+            throw new IllegalStateException("Journal is closed");
+        pending.putInt(id).put((byte) ply).put((byte) col);
+        appended++;
+    }
+
+    // waits until every record appended so far is on disk.
+    public synchronized void sync() throws IOException {
+        long target = appended;
+        commitRequested = true;
+        notifyAll();
+        boolean interrupted = false;
+        while (durable < target && failure == null && committer.isAlive()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (failure != null)
+            throw failure;
+    }
+
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            boolean stop;
+            synchronized (this) {
+                if (!closed && !commitRequested) {
+                    try {
+                        wait(COMMIT_MILLIS);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                commitRequested = false;
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchEnd = appended;
+                stop = closed;
+                notifyAll();
+            }
+            try {
+                if (batch.position() > 0)
+                    commit(batch);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+            synchronized (this) {
+                durable = batchEnd;
+                notifyAll();
+            }
+            if (stop)
+                return;
+        }
+    }
+
+    private void commit(ByteBuffer batch) throws IOException {
+        batch.flip();
+        CRC32 crc = new CRC32();
+        crc.update(batch.duplicate());
+        commitHeader.clear();
+        commitHeader.putInt(batch.limit()).putInt((int) crc.getValue()).flip();
+        synchronized (fileLock) {
+            ByteBuffer[] buffers = { commitHeader, batch };
+            while (batch.hasRemaining())
+                channel.write(buffers);
+            channel.force(false);
+            commits++;
+            if (channel.size() >= segmentBytes) {
+                rollover();
+                if (segment - firstSegment >= COMPACT_SEGMENTS && compactor == null) {
+                    compactor = new Thread(this::compactInBackground, "journal-compact");
+                    compactor.setDaemon(true);
+                    compactor.start();
+                }
+            }
+        }
+    }
+
+    // closes the segment being written and starts the next one, holding fileLock.
+    private void rollover() throws IOException {
+        channel.close();
+        segment++;
+        channel = openSegment(segmentPath(segment), 0);
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (IOException e) {
+            System.out.println("Could not compact the game journal: " + e.getMessage());
+        } finally {
+            synchronized (fileLock) {
+                compactor = null;
+            }
+        }
+    }
+
+    /*
+     * Replays the closed segments and writes the moves of the games still running
+     * in them as a snapshot segment, which takes the place of the newest closed
+     * segment. The snapshot is written next to it and moved over it, replay
+     * starts at the newest snapshot, so the older segments are only deleted once
+     * nothing needs them. Games finished in a closed segment are dropped.
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            compactClosedSegments();
+        }
+    }
+
+    private void compactClosedSegments() throws IOException {
+        long last;
+        synchronized (fileLock) {
+            if (segment == firstSegment)
+                return;
+            last = segment - 1;
+        }
+        Map<Integer, Game> games = new TreeMap<Integer, Game>();
+        long first = replay(last, games);
+        int records = 0;
+        for (Game game : games.values())
+            records += 1 + game.plies;
+        // every game starts like a new one, so games without moves are kept too.
+        ByteBuffer snapshot = ByteBuffer.allocate(records * RECORD_BYTES);
+        for (Map.Entry<Integer, Game> game : games.entrySet()) {
+            snapshot.putInt(game.getKey()).put((byte) 0).put((byte) UNDO);
+            for (int ply = 0; ply < game.getValue().plies; ply++)
+                snapshot.putInt(game.getKey()).put((byte) ply).put(game.getValue().moves[ply]);
+        }
+        snapshot.flip();
+        Path temp = directory.resolve(segmentPath(last).getFileName() + ".tmp");
+        try (FileChannel out = openSegment(temp, SNAPSHOT)) {
+            CRC32 crc = new CRC32();
+            crc.update(snapshot.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(COMMIT_HEADER_BYTES);
+            header.putInt(snapshot.limit()).putInt((int) crc.getValue()).flip();
+            ByteBuffer[] buffers = { header, snapshot };
+            while (snapshot.hasRemaining())
+                out.write(buffers);
+            out.force(false);
+        }
+        Files.move(temp, segmentPath(last), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (fileLock) {
+            firstSegment = last;
+        }
+        for (long number = first; number < last; number++)
+            Files.deleteIfExists(segmentPath(number));
+        compactions++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+            // no compaction starts once the committer is done, wait for the one
+            // that may still be replacing segments.
+            Thread running;
+            synchronized (fileLock) {
+                running = compactor;
+            }
+            if (running != null)
+                running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (fileLock) {
+            channel.close();
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    // size of the segments on disk.
+    public long sizeBytes() throws IOException {
+        long bytes = 0;
+        for (long number : segmentNumbers(directory))
+            bytes += Files.size(segmentPath(number));
+        return bytes;
+    }
+
+    private FileChannel openSegment(Path path, int flags) throws IOException {
+        FileChannel segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(flags).flip();
+        while (header.hasRemaining())
+            segment.write(header);
+        return segment;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> segmentNumbers(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<Long>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    // moves of a game while replaying.
+    private static class Game {
+        byte[] moves = new byte[BitBoard.SIZE];
+        int plies;
+
+        String moveHistory() {
+            StringBuilder history = new StringBuilder(plies);
+            for (int i = 0; i < plies; i++)
+                history.append((char) ('0' + moves[i]));
+            return history.toString();
+        }
+    }
+
+    // replays the segments up to last into games, starting at the newest snapshot
+    // among them. returns the number of the first segment replayed.
+    private long replay(long last, Map<Integer, Game> games) throws IOException {
+        List<Path> segments = new ArrayList<Path>();
+        long first = 0;
+        for (long number : segmentNumbers(directory)) {
+            if (number > last)
+                break;
+            Path path = segmentPath(number);
+            if (isSnapshot(path)) {
+                segments.clear();
+                first = number;
+            } else if (segments.isEmpty()) {
+                first = number;
+            }
+            segments.add(path);
+        }
+        for (Path path : segments)
+            replaySegment(path, games);
+        return first;
+    }
+
+    private static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && in.read(header) != -1)
+                ;
+            header.flip();
+            return header.remaining() == HEADER_BYTES && header.getInt(0) == MAGIC
+                    && (header.getInt(8) & SNAPSHOT) != 0;
+        }
+    }
+
+    private void replaySegment(Path path, Map<Integer, Game> games) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        // a segment the process died creating.
+        if (in.capacity() < HEADER_BYTES)
+            return;
+        if (in.getInt(0) != MAGIC)
+            throw new IOException("Not a game journal segment: " + path);
+        if (in.getInt(4) != VERSION)
+            throw new IOException("Unsupported game journal version " + in.getInt(4) + ": " + path);
+        in.position(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= COMMIT_HEADER_BYTES) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 0 || length > in.remaining() || length % RECORD_BYTES != 0)
+                return;
+            ByteBuffer records = in.slice();
+            records.limit(length);
+            crc.reset();
+            crc.update(records.duplicate());
+            if ((int) crc.getValue() != checksum)
+                return;
+            while (records.hasRemaining())
+                apply(games, records.getInt(), records.get(), records.get());
+            in.position(in.position() + length);
+        }
+    }
+
+    private void apply(Map<Integer, Game> games, int id, int ply, int col) {
+        maxId = Math.max(maxId, id);
+        if (col == FINISHED) {
+            games.remove(id);
+            return;
+        }
+        if (ply < 0 || ply >= BitBoard.SIZE)
+            return;
+        Game game = games.get(id);
+        if (game == null) {
+            game = new Game();
+            games.put(id, game);
+        }
+        if (col == UNDO) {
+            game.plies = Math.min(game.plies, ply);
+        } else {
+            game.moves[ply] = (byte) col;
+            game.plies = ply + 1;
+        }
+    }
+}
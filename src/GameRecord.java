@@ -0,0 +1,55 @@
+public class GameRecord {
+    public final static int DRAW = -1;
+
+    public int id;
+    public String player1;
+    public String player2;
+    // columns played (0-6), in the format Board(String moveHistory, Player[]) loads.
+    public String moves;
+    // 0 if player 1 won, 1 if player 2 won, DRAW otherwise.
+    public int winner;
+    // time each move took to choose, in nanoseconds.
+    public long[] moveNanos;
+
+    public GameRecord(int id, String player1, String player2, String moves, int winner, long[] moveNanos) {
+        this.id = id;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.moves = moves;
+        this.winner = winner;
+        this.moveNanos = moveNanos;
+    }
+
+    public String outcome() {
+        return winner == DRAW ? "draw" : winner == 0 ? "player1" : "player2";
+    }
+
+    public static String csvHeader() {
+        return "id,player1,player2,moves,outcome,plies,move_ms";
+    }
+
+    public String toCsv() {
+        StringBuilder line = new StringBuilder();
+        line.append(id).append(',').append(player1).append(',').append(player2).append(',').append(moves).append(',')
+                .append(outcome()).append(',').append(moves.length()).append(',');
+        for (int i = 0; i < moveNanos.length; i++) {
+            if (i > 0)
+                line.append(' ');
+            line.append(String.format("%.3f", moveNanos[i] / 1e6));
+        }
+        return line.toString();
+    }
+
+    public String toJson() {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"id\": ").append(id).append(", \"player1\": \"").append(player1).append("\", \"player2\": \"")
+                .append(player2).append("\", \"moves\": \"").append(moves).append("\", \"outcome\": \"")
+                .append(outcome()).append("\", \"plies\": ").append(moves.length()).append(", \"moveMs\": [");
+        for (int i = 0; i < moveNanos.length; i++) {
+            if (i > 0)
+                line.append(", ");
+            line.append(String.format("%.3f", moveNanos[i] / 1e6));
+        }
+        return line.append("]}").toString();
+    }
+}
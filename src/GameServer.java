@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class GameServer {
+    /*
+     * HTTP front end for the AI, built on the JDK's HttpServer.
+     *
+     * GET /move?moves=<history>[&ms=<budget>] returns the AI's move for the
+     * position given as a move history (columns 0-6, the format Board(String,
+     * Player[]) loads).
+     * GET /stats returns request counts and queueing, search and total latency
+     * percentiles.
+     *
+     * Move requests run on a fixed pool of maxSearches threads, each with a
+     * Minimax instance of a fixed pool of them: a request takes one, searches and
+     * hands it back, so at most maxSearches searches run at once. The rest wait in
+     * a queue of QUEUED_PER_SEARCHER per searcher, a request arriving to a full
+     * queue is answered with 503 right away instead of waiting. All searchers
+     * use the server's transposition table, so a position searched for one
+     * request is known to every later one.
+     * GET /stats also reports the table's hit rate and contention.
+     * With a table file the table is loaded from it at startup and saved to it
+     * periodically and on shutdown, so a restart doesn't lose what was searched.
+     */
+    public final static int DEFAULT_PORT = 8080;
+    public final static long DEFAULT_MOVE_MS = 1000;
+    public final static long MAX_MOVE_MS = 10000;
+    public final static long SNAPSHOT_MINUTES = 5;
+    public final static int QUEUED_PER_SEARCHER = 16;
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private BlockingQueue<Minimax> searchers;
+    private TranspositionTable table;
+    private long fingerprint;
+    private ScheduledExecutorService snapshots;
+
+    private AtomicInteger inFlight = new AtomicInteger();
+    private AtomicInteger waiting = new AtomicInteger();
+    private AtomicInteger rejected = new AtomicInteger();
+    private LatencyRecorder queueLatency = new LatencyRecorder(10000);
+    private LatencyRecorder searchLatency = new LatencyRecorder(10000);
+    private LatencyRecorder totalLatency = new LatencyRecorder(10000);
+
+    public GameServer(int port, int maxSearches, int tableMB) throws IOException {
+        searchers = new ArrayBlockingQueue<Minimax>(maxSearches);
+        table = new TranspositionTable(tableMB, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        for (int i = 0; i < maxSearches; i++)
+            searchers.add(new Minimax(table));
+        fingerprint = searchers.peek().fingerprint();
+        requestExecutor = new ThreadPoolExecutor(maxSearches, maxSearches, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(maxSearches * QUEUED_PER_SEARCHER));
+        // handlers run on the server's dispatcher thread, /move only hands the
+        // request to the pool and /stats is answered right away.
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/move", this::dispatchMove);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        if (snapshots != null)
+            snapshots.shutdownNow();
+    }
+
+    // loads the table from the file if there is one, then saves it to it every
+    // interval and when the JVM shuts down. a file saved by a different search is
+    // ignored and overwritten.
+    public void enableSnapshots(Path file, Duration interval) {
+        if (Files.exists(file)) {
+            try {
+                long start = System.nanoTime();
+                int count = table.load(file, fingerprint);
+                System.out.printf("Loaded %d positions from %s in %.1f ms%n", count, file,
+                        (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.out.println("Could not load transposition table: " + e.getMessage());
+            }
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor();
+        long millis = interval.toMillis();
+        snapshots.scheduleAtFixedRate(() -> snapshot(file), millis, millis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> snapshot(file)));
+    }
+
+    public synchronized void snapshot(Path file) {
+        try {
+            table.save(file, fingerprint);
+        } catch (IOException e) {
+            System.out.println("Could not save transposition table: " + e.getMessage());
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void dispatchMove(HttpExchange exchange) throws IOException {
+        long received = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            requestExecutor.execute(() -> {
+                waiting.decrementAndGet();
+                try {
+                    handleMove(exchange, received);
+                } catch (IOException | RuntimeException e) {
+                    exchange.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            respond(exchange, 503, "{\"error\": \"server busy\"}");
+        }
+    }
+
+    private void handleMove(HttpExchange exchange, long received) throws IOException {
+        String moves = queryParam(exchange, "moves", "");
+        long budgetMs;
+        try {
+            budgetMs = Long.parseLong(queryParam(exchange, "ms", String.valueOf(DEFAULT_MOVE_MS)));
+        } catch (NumberFormatException e) {
+            budgetMs = 0;
+        }
+        // a budget of 0 or less would end the search before depth 1.
+        if (budgetMs < 1) {
+            respond(exchange, 400, "{\"error\": \"invalid ms\"}");
+            return;
+        }
+        budgetMs = Math.min(budgetMs, MAX_MOVE_MS);
+
+        BitBoard position;
+        try {
+            position = BitBoard.fromMoves(moves);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "{\"error\": \"" + e.getMessage() + "\"}");
+            return;
+        }
+        if (position.lastMoveWon() || position.moveCount == BitBoard.SIZE) {
+            respond(exchange, 400, "{\"error\": \"game is over\"}");
+            return;
+        }
+
+        // there are as many searchers as request threads, so one is always free.
+        Minimax minimax;
+        try {
+            minimax = searchers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "{\"error\": \"interrupted\"}");
+            return;
+        }
+        long started = System.nanoTime();
+        queueLatency.record(started - received);
+        SearchResult result;
+        inFlight.incrementAndGet();
+        try {
+            result = minimax.search(position, Duration.ofMillis(budgetMs));
+        } finally {
+            inFlight.decrementAndGet();
+            searchers.add(minimax);
+        }
+        long finished = System.nanoTime();
+        searchLatency.record(finished - started);
+        totalLatency.record(finished - received);
+
+        respond(exchange, 200, String.format(
+                "{\"move\": %d, \"score\": %d, \"depth\": %d, \"nodes\": %d, \"queueMs\": %.3f, \"searchMs\": %.3f}",
+                result.col, result.score, result.depth, result.stats.nodes, (started - received) / 1e6,
+                (finished - started) / 1e6));
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, String.format(
+                "{\"inFlight\": %d, \"waiting\": %d, \"rejected\": %d, \"queue\": %s, \"search\": %s, \"total\": %s, \"table\": %s}",
+                inFlight.get(), waiting.get(), rejected.get(), queueLatency.toJson(), searchLatency.toJson(), totalLatency.toJson(),
+                table.statsJson()));
+    }
+
+    private static String queryParam(HttpExchange exchange, String name, String fallback) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null)
+            return fallback;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name))
+                return pair.substring(eq + 1);
+        }
+        return fallback;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // usage: java GameServer [port] [max concurrent searches] [table MB] [table file]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxSearches = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int tableMB = args.length > 2 ? Integer.parseInt(args[2]) : TranspositionTable.SHARED_SIZE_MB;
+        GameServer server = new GameServer(port, maxSearches, tableMB);
+        if (args.length > 3)
+            server.enableSnapshots(Paths.get(args[3]), Duration.ofMinutes(SNAPSHOT_MINUTES));
+        server.start();
+        System.out.println("Listening on port " + server.port() + " with " + maxSearches + " concurrent searches");
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.Arrays;
+
+public class LatencyRecorder {
+    /*
+     * Keeps the most recent latency samples in a ring buffer and reports
+     * percentiles over them. Recording is a synchronized array store, cheap
+     * compared to the searches being measured.
+     */
+    private long[] samples;
+    private int next;
+    private long count;
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count++;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    // latency at the given percentile (0-100) in milliseconds, over the recent samples.
+    public double percentileMillis(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        if (sorted.length == 0)
+            return 0;
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    public String toJson() {
+        return String.format("{\"count\": %d, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"max\": %.3f}", count(),
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100));
+    }
+}
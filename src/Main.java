@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Scanner;
 
@@ -79,7 +81,20 @@ public class Main {
             }
 
             Player human = new Player(name, color.equals("R") ? Colour.RED : Colour.YELLOW);
-            Player AI = new AIPlayer(color.equals("R") ? Colour.YELLOW : Colour.RED);
+            AIPlayer AI = new AIPlayer(color.equals("R") ? Colour.YELLOW : Colour.RED);
+            AI.minimax.book = OpeningBook.loadDefault();
+
+            // get difficulty
+            System.out.print("Choose difficulty [E | M | H | P]: ");
+            String level = scanner.nextLine();
+            while (!level.matches("(^E$|^M$|^H$|^P$)")) {
+                System.out.print("Choose difficulty [E | M | H | P]: ");
+                level = scanner.nextLine();
+            }
+            for (Difficulty difficulty : Difficulty.values()) {
+                if (difficulty.name().startsWith(level))
+                    AI.difficulty = difficulty;
+            }
 
             // get player 1
             System.out.print("Would you like to go first? [Y | N]: ");
@@ -184,7 +199,13 @@ public class Main {
             } else {
                 if (nextMove != null && nextMove.player instanceof AIPlayer)
                     System.out.println("MiniMax moved at: " + (nextMove.col + 1));
+                // let the AI search on the human's time.
+                Player opponent = board.getCurrentPlayer() == p1 ? p2 : p1;
+                if (opponent instanceof AIPlayer)
+                    ((AIPlayer) opponent).startPondering(board);
                 nextMove = board.getCurrentPlayer().getMove(scanner);
+                if (opponent instanceof AIPlayer)
+                    ((AIPlayer) opponent).stopPondering();
             }
 
             if (board.checkAvailableMove(nextMove) == -1) {
@@ -210,7 +231,12 @@ public class Main {
         }
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            // serve AI moves over HTTP instead of playing in the console.
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         app();
     }
 }
\ No newline at end of file
@@ -1,129 +1,785 @@
-import java.util.Arrays;
-import java.util.HashMap;
-
-public class Minimax {
-    public static int[] columnOrder = new int[] { 3, 2, 4, 1, 5, 0, 6 };
-
-    public static int runMinimax(Board board, boolean isMax, int alpha, int beta, int depth) {
-
-        /*
-         * Minimax algorithm with alpha-beta pruning, move ordering and some sort of
-         * iterative deepining(?)
-         * -> assumes player 1 is always a maximizer and player 2 is always a minimizer
-         * The algorithm uses depth to distinguish between winning moves, i.e. a winning
-         * move that requires less moves is better.
-         */
-        Move lastMove = board.moves.peek();
-        // check for terminal states, win/loss
-
-        if (board.checkGameWon(lastMove.row, lastMove.col)) {
-            if (board.moveCount % 2 == 0) {
-                // player 2 will always win on an even move count.
-                return -1 * depth;
-            } else {
-                return depth;
-            }
-        } else if (board.moveCount > 42) // check for draw.
-        {
-            return 0;
-        }
-        // at each call for minimax at a depth < some threshold, check moves in some
-        // estimated sequence.
-        int deepeningThreshold = 20;
-        int[] moveSeq = columnOrder;
-        if (depth > deepeningThreshold) {
-            moveSeq = board.getSortedMoves(isMax ? 1 : -1);
-        }
-        if (isMax) {
-            // check if depth has exceeded alpha (any move encountered after this will be
-            // worse than the winning alternative).
-            if (depth <= alpha) {
-                // if alpha has been established at a lower depth, then any winning state at a
-                // lower depth will be less valuble than alpha
-                // therefore skip.
-                return depth;
-            }
-
-            for (int i : moveSeq) {
-                Move possibleMove = Move.createMove(i + 1, board.players[0]);
-                if (board.checkAvailableMove(possibleMove) == -1) {
-                    continue;
-                }
-                board.makeMove(possibleMove);
-                alpha = Math.max(alpha, runMinimax(board, false, alpha, beta, depth - 1));
-                board.undoMove();
-                if (alpha >= beta) {
-                    return beta; // ignore value.
-                }
-            }
-            return alpha;
-        } else {
-            // check if depth has exceeded beta depth (any move encountered after this will
-            // be worse than the winning alternative)
-            if (-1 * depth >= beta) {
-                // if beta has been established at a lower depth, then any winning state at a
-                // lower depth will be less valuble than beta
-                // therefore skip.
-                return -1 * depth;
-            }
-            for (int i : moveSeq) {
-                Move possibleMove = Move.createMove(i + 1, board.players[1]);
-                if (board.checkAvailableMove(possibleMove) == -1) {
-                    continue;
-                }
-                board.makeMove(possibleMove);
-                beta = Math.min(beta, runMinimax(board, true, alpha, beta, depth - 1));
-                board.undoMove();
-                if (beta <= alpha) {
-                    return alpha; // ignore value
-                }
-            }
-            return beta;
-        }
-    }
-
-    public static int getBestMove(Board board) {
-        int bestCol = -1;
-        boolean isMax = board.players[0] instanceof AIPlayer;
-        int bestScore = isMax ? -100000 : 100000;
-        // int[] scores = new int[7]; // if you want to see the evaluated scores for
-        // each available col.
-        for (int col : columnOrder) {
-            Move possibleMove = new Move(col, board.getCurrentPlayer());
-            if (board.checkAvailableMove(possibleMove) == -1) {
-                continue;
-            }
-            board.makeMove(possibleMove);
-            int score = runMinimax(board, !isMax, -100000, 100000, 42 - board.moveCount);
-            // scores[col] = score;
-
-            board.undoMove();
-            if (isMax) {
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestCol = col;
-                }
-            } else {
-                if (score < bestScore) {
-                    bestScore = score;
-                    bestCol = col;
-                }
-            }
-        }
-
-        // // test where move is.
-        // Move bestMove = new Move(bestCol, players[1]);
-        // board.checkAvailableMove(bestMove);
-        // board.makeMove(bestMove);
-        // System.out.println("Best Score: " + bestScore);
-        // System.out.println("Best move: " + bestCol);
-        // board.printBoard();
-
-        // // test to see scores for each available col.
-        // for (int i = 0; i < scores.length; i++) {
-        // System.out.println("For column " + i + " score is: " + scores[i]);
-        // }
-
-        return bestCol;
-    }
-}
\ No newline at end of file
+import java.time.Duration;
+import java.util.Arrays;
+
+public class Minimax {
+    public static int[] columnOrder = new int[] { 3, 2, 4, 1, 5, 0, 6 };
+
+    // a win is scored by the move count it was reached at, so a win that requires
+    // less moves is better.
+    public final static int WIN_SCORE = 1000;
+    public final static int INFINITY = 100000;
+    // bump whenever scores or the evaluation change, tables saved by an older
+    // version are rejected then.
+    public final static int SCORE_VERSION = 1;
+
+    // positions searched so far, kept between searches so a player reuses the
+    // work of its previous moves.
+    public TranspositionTable table;
+    // solved early positions, looked up before searching. may be null.
+    public OpeningBook book;
+    // solved late positions, looked up at the nodes it covers. may be null.
+    public EndgameDatabase endgame;
+
+    // move ordering buffers, one per move count so a node's move list survives the
+    // recursion below it. allocated once so the search itself never allocates.
+    private int[][] moveBuffers = new int[BitBoard.SIZE + 1][BitBoard.WIDTH];
+    private int[] scoreBuffer = new int[BitBoard.WIDTH];
+    // how much each cell has caused cutoffs for each player during this search,
+    // indexed by the cell's bit. kept below HISTORY_MAX so it fits in the low bits
+    // of an ordering score.
+    private int[][] history = new int[2][BitBoard.WIDTH * BitBoard.H1];
+    private final static int HISTORY_MAX = (1 << 21) - 1;
+
+    // counters of the current (or last) search, the clock is only read every
+    // CHECK_INTERVAL nodes.
+    public SearchStats stats = new SearchStats();
+    private final static int CHECK_INTERVAL = 4096;
+    private long deadline = Long.MAX_VALUE;
+    private boolean aborted;
+    // set by another thread to stop searching, read with the clock.
+    private volatile boolean stopRequested;
+    private long startTime;
+    private int rootMoveCount;
+
+    // score of the last root search.
+    private int rootScore;
+
+    // told about every finished search, may be null.
+    public SearchListener listener;
+    // scores positions at the depth limit of a depth limited search.
+    public Evaluator evaluator = new ThreatEvaluator();
+    // the search stops once it has searched this many nodes.
+    private long nodeLimit = Long.MAX_VALUE;
+    // xored into the hash of every table entry, see tableKey.
+    private long tableSalt;
+
+    public Minimax(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public Minimax() {
+        this(new TranspositionTable());
+    }
+
+    // identifies the hashing and scoring of this search, saved tables are only
+    // loaded by a search with the same fingerprint.
+    public long fingerprint() {
+        long fingerprint = SCORE_VERSION;
+        fingerprint = fingerprint * 31 + WIN_SCORE;
+        fingerprint = fingerprint * 31 + BitBoard.WIDTH * 8 + BitBoard.HEIGHT;
+        fingerprint = fingerprint * 31 + evaluator.getClass().getName().hashCode();
+        return fingerprint ^ BitBoard.ZOBRIST[0][0] ^ Long.rotateLeft(BitBoard.ZOBRIST[1][0], 1);
+    }
+
+    /*
+     * Hash a position's table entry is stored under. Scores of a depth limited
+     * search come from the evaluator at its depth limit, and evaluators score on
+     * different scales, so with a shared table a search must not take another
+     * evaluator's bounds for its own. Depth limited searches with any evaluator
+     * but the default ThreatEvaluator mix a key of the evaluator into the hash.
+     * Solving never calls the evaluator, its scores are exact and shared by
+     * everyone, and it orders its moves by the best moves ThreatEvaluator
+     * searches stored (pondering relies on that).
+     */
+    public long tableKey(BitBoard position) {
+        return position.canonicalHash() ^ tableSalt;
+    }
+
+    private long evaluatorSalt() {
+        if (evaluator instanceof ThreatEvaluator)
+            return 0;
+        return evaluator.getClass().getName().hashCode() * 0x9E3779B97F4A7C15L;
+    }
+
+    public static int winScore(int moveCount) {
+        return WIN_SCORE - moveCount;
+    }
+
+    public int runMinimax(BitBoard board, boolean isMax, int alpha, int beta, int depth) {
+
+        /*
+         * Minimax algorithm with alpha-beta pruning, move ordering (see orderMoves)
+         * and a transposition table, searching depth plies deep. positions at depth 0
+         * that aren't decided are scored by the evaluator, iterative deepening is
+         * done by search(position, maxDepth, maxNodes, budget).
+         * -> assumes player 1 is always a maximizer and player 2 is always a minimizer
+         * The algorithm uses the move count of a win to distinguish between winning
+         * moves, i.e. a winning move that requires less moves is better.
+         * Searches on a bitboard instead of the Board grid, so making, undoing and
+         * checking a move are a handful of bit operations.
+         */
+        // stop once the time budget is used up, the partial result is thrown away.
+        if ((++stats.nodes & (CHECK_INTERVAL - 1)) == 0 && (System.nanoTime() > deadline || stopRequested)) {
+            aborted = true;
+        }
+        if (stats.nodes > nodeLimit) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        // check for terminal states, win/loss
+        if (board.lastMoveWon()) {
+            if (board.moveCount % 2 == 0) {
+                // player 2 will always win on an even move count.
+                return -winScore(board.moveCount);
+            } else {
+                return winScore(board.moveCount);
+            }
+        } else if (board.moveCount >= BitBoard.SIZE) // check for draw.
+        {
+            return 0;
+        } else if (depth == 0) {
+            return evaluator.evaluate(board);
+        }
+        if (board.moveCount - rootMoveCount > stats.maxDepth) {
+            stats.maxDepth = board.moveCount - rootMoveCount;
+        }
+        // a move that wins right away is the best there is, no need to search.
+        if (board.canWinNext()) {
+            return isMax ? winScore(board.moveCount + 1) : -winScore(board.moveCount + 1);
+        }
+        // moves that don't let the opponent win on the next move. this is only the
+        // block if the opponent threatens to win, and never a move right below one
+        // of its threats. if there are none, every move loses on the next move.
+        long candidates = board.nonLosingMoves();
+        if (candidates == 0) {
+            return isMax ? -winScore(board.moveCount + 2) : winScore(board.moveCount + 2);
+        }
+        // best score the player to move could still reach is winning with its move
+        // after next, it can't win with this one.
+        int bestPossible = winScore(board.moveCount + 3);
+        if (isMax ? bestPossible <= alpha : -bestPossible >= beta) {
+            // if alpha (beta) has been established at a lower move count, then any
+            // winning state at a higher move count will be less valuble, therefore skip.
+            return isMax ? bestPossible : -bestPossible;
+        }
+
+        // the same position is reached through many move orders, reuse its score if
+        // it was searched at least as deep as needed here.
+        int alphaOrig = alpha;
+        int betaOrig = beta;
+        int ttMove = -1;
+        // mirrored positions share their entry, the best move is stored for the
+        // canonical one.
+        int entry = table.probe(tableKey(board));
+        stats.tableProbes++;
+        if (entry != 0) {
+            stats.tableHits++;
+            ttMove = TranspositionTable.bestCol(entry);
+            if (ttMove != -1 && board.isMirrored()) {
+                ttMove = BitBoard.mirrorCol(ttMove);
+            }
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int flag = TranspositionTable.flag(entry);
+                if (flag == TranspositionTable.EXACT) {
+                    return score;
+                } else if (flag == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        // a position the endgame database has is solved, its score is exact at any
+        // depth. kept in the table as well, which is cheaper to probe.
+        if (endgame != null && endgame.covers(board.moveCount)) {
+            int solved = endgame.probe(board.canonicalKey());
+            if (solved != -1) {
+                stats.endgameHits++;
+                int score = OpeningBook.score(solved);
+                table.store(tableKey(board), score, depth, TranspositionTable.EXACT, -1);
+                return score;
+            }
+        }
+
+        int[] moveSeq = orderMoves(board, ttMove);
+        int bestCol = -1;
+        int searched = 0;
+        int value;
+        if (isMax) {
+            for (int i : moveSeq) {
+                if ((candidates & board.moveBit(i)) == 0) {
+                    continue;
+                }
+                board.play(i);
+                searched++;
+                int score = runMinimax(board, false, alpha, beta, depth - 1);
+                board.undo();
+                if (aborted) {
+                    return 0;
+                }
+                if (score > alpha || bestCol == -1) {
+                    bestCol = i;
+                }
+                alpha = Math.max(alpha, score);
+                if (alpha >= beta) {
+                    countCutoff(searched);
+                    recordCutoff(board, i, depth);
+                    break;
+                }
+            }
+            value = alpha >= beta ? beta : alpha;
+        } else {
+            for (int i : moveSeq) {
+                if ((candidates & board.moveBit(i)) == 0) {
+                    continue;
+                }
+                board.play(i);
+                searched++;
+                int score = runMinimax(board, true, alpha, beta, depth - 1);
+                board.undo();
+                if (aborted) {
+                    return 0;
+                }
+                if (score < beta || bestCol == -1) {
+                    bestCol = i;
+                }
+                beta = Math.min(beta, score);
+                if (beta <= alpha) {
+                    countCutoff(searched);
+                    recordCutoff(board, i, depth);
+                    break;
+                }
+            }
+            value = beta <= alpha ? alpha : beta;
+        }
+
+        stats.expandedNodes++;
+        stats.childrenSearched += searched;
+
+        int flag = TranspositionTable.EXACT;
+        if (value <= alphaOrig) {
+            flag = TranspositionTable.UPPER_BOUND;
+        } else if (value >= betaOrig) {
+            flag = TranspositionTable.LOWER_BOUND;
+        }
+        table.store(tableKey(board), value, depth, flag,
+                board.isMirrored() && bestCol != -1 ? BitBoard.mirrorCol(bestCol) : bestCol);
+        return value;
+    }
+
+    private void countCutoff(int searched) {
+        stats.betaCutoffs++;
+        if (searched == 1) {
+            stats.firstMoveCutoffs++;
+        }
+    }
+
+    // credits the cell col was played into with a cutoff, deeper cutoffs saved
+    // more work so they count for more. once a count gets too large all of the
+    // player's counts are halved, which keeps their order and lets recent
+    // cutoffs weigh more.
+    private void recordCutoff(BitBoard board, int col, int depth) {
+        int[] counts = history[board.moveCount & 1];
+        int cell = board.height[col];
+        counts[cell] += depth * depth;
+        if (counts[cell] > HISTORY_MAX) {
+            for (int i = 0; i < counts.length; i++)
+                counts[i] >>= 1;
+        }
+    }
+
+    // columns in the order they should be searched: the best move found by an
+    // earlier search of the position first, then by threatScore, then closest to
+    // the center and finally by history, which only decides between the two
+    // columns at the same distance. full columns go last. the returned array is
+    // the move buffer of the position's move count, -1 for ttMove if there is none.
+    public int[] orderMoves(BitBoard board, int ttMove) {
+        int[] moveSeq = moveBuffers[board.moveCount];
+        int[] scores = scoreBuffer;
+        int[] counts = history[board.moveCount & 1];
+        for (int i = 0; i < BitBoard.WIDTH; i++) {
+            int col = columnOrder[i];
+            int score = -1;
+            if (col == ttMove) {
+                score = Integer.MAX_VALUE;
+            } else if (board.canPlay(col)) {
+                // the threat masks are kept up to date by play, so scoring by them is
+                // cheap enough to do at every depth.
+                score = board.threatScore(col) << 23 | (3 - Math.abs(col - 3)) << 21
+                        | counts[board.height[col]];
+            }
+            scores[col] = score;
+            int j = i;
+            while (j > 0 && score > scores[moveSeq[j - 1]]) {
+                moveSeq[j] = moveSeq[j - 1];
+                j--;
+            }
+            moveSeq[j] = col;
+        }
+        return moveSeq;
+    }
+
+    public int findBestMove(Board board) {
+        // search on a bitboard copy, the board itself stays untouched.
+        return search(new BitBoard(board)).col;
+    }
+
+    public int findBestMove(BitBoard position) {
+        return search(position).col;
+    }
+
+    public int findBestMove(Board board, Duration budget) {
+        return search(new BitBoard(board), budget).col;
+    }
+
+    public int findBestMove(BitBoard position, Duration budget) {
+        return search(position, budget).col;
+    }
+
+    public SearchResult search(Board board) {
+        return search(new BitBoard(board));
+    }
+
+    public SearchResult search(Board board, Duration budget) {
+        return search(new BitBoard(board), budget);
+    }
+
+    public SearchResult search(Board board, int maxDepth, long maxNodes, Duration budget) {
+        return search(new BitBoard(board), maxDepth, maxNodes, budget);
+    }
+
+    // solves the position to the end of the game.
+    public SearchResult search(BitBoard position) {
+        startSearch(position, Long.MAX_VALUE);
+        int bookCol = probeBook(position);
+        if (bookCol != -1) {
+            return finishSearch(bookCol, rootScore, 0, true);
+        }
+        // player 1 is always the maximizer, so it depends on whose turn it is rather
+        // than on which player is the AI.
+        boolean isMax = position.moveCount % 2 == 0;
+        int remaining = BitBoard.SIZE - position.moveCount;
+        int col = searchRoot(position, isMax, columnOrder, remaining);
+        if (aborted) {
+            // stopped: the best of the columns solved so far, or the first legal
+            // move if none was. the depth of 0 marks the result as unfinished.
+            return finishSearch(col != -1 ? col : firstLegalMove(position), col != -1 ? rootScore : 0, 0, false);
+        }
+        return finishSearch(col, rootScore, remaining, false);
+    }
+
+    /*
+     * Iterative deepening within a time budget. Searches the position to depth 1,
+     * 2, 3... until the game is solved or the time runs out and returns the best
+     * move of the last completed iteration. The best move of each iteration is
+     * searched first in the next one, and the table's best moves order the rest of
+     * the previous principal variation.
+     * Positions at the depth limit that aren't decided are scored by the evaluator.
+     */
+    public SearchResult search(BitBoard position, Duration budget) {
+        return search(position, BitBoard.SIZE, Long.MAX_VALUE, budget);
+    }
+
+    // iterative deepening that also stops after maxDepth plies or maxNodes nodes,
+    // whichever comes first. budget may be null for no time limit. the opening
+    // book is only used when the depth isn't limited, a weaker level shouldn't
+    // play perfect openings.
+    public SearchResult search(BitBoard position, int maxDepth, long maxNodes, Duration budget) {
+        startSearch(position, budget == null ? Long.MAX_VALUE : System.nanoTime() + budget.toNanos());
+        nodeLimit = maxNodes;
+        tableSalt = evaluatorSalt();
+        int remaining = BitBoard.SIZE - position.moveCount;
+        int bookCol = maxDepth >= remaining ? probeBook(position) : -1;
+        if (bookCol != -1) {
+            return finishSearch(bookCol, rootScore, 0, true);
+        }
+        boolean isMax = position.moveCount % 2 == 0;
+
+        int[] rootOrder = columnOrder.clone();
+        // fall back to the first legal move if not even depth 1 completes.
+        int bestCol = firstLegalMove(position);
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = 1; depth <= Math.min(remaining, maxDepth); depth++) {
+            int col = searchRoot(position, isMax, rootOrder, depth);
+            if (aborted) {
+                break;
+            }
+            bestCol = col;
+            bestScore = rootScore;
+            completedDepth = depth;
+            // search the best move first in the next iteration.
+            int i = 0;
+            while (rootOrder[i] != col)
+                i++;
+            for (; i > 0; i--)
+                rootOrder[i] = rootOrder[i - 1];
+            rootOrder[0] = col;
+            if (Math.abs(rootScore) > WIN_SCORE - BitBoard.SIZE - 1) {
+                // a forced win or loss is exact, searching deeper won't change it.
+                break;
+            }
+        }
+        return finishSearch(bestCol, bestScore, completedDepth, false);
+    }
+
+    // one search of the position to depth plies, without the shallower iterations
+    // before it. for callers that deepen themselves, like pondering, the
+    // earlier iterations' scores and best moves are in the table already.
+    public SearchResult searchToDepth(BitBoard position, int depth, long maxNodes) {
+        startSearch(position, Long.MAX_VALUE);
+        nodeLimit = maxNodes;
+        tableSalt = evaluatorSalt();
+        depth = Math.min(depth, BitBoard.SIZE - position.moveCount);
+        int col = searchRoot(position, position.moveCount % 2 == 0, columnOrder, depth);
+        if (aborted) {
+            return finishSearch(col != -1 ? col : firstLegalMove(position), col != -1 ? rootScore : 0, 0, false);
+        }
+        return finishSearch(col, rootScore, depth, false);
+    }
+
+    /*
+     * Null window solver. Instead of one full window search it asks a series of
+     * yes/no questions "is the score at least g?", each answered by a search with
+     * the window (g - 1, g), which cuts off far more than a full window. A weak
+     * solve only asks whether player 1 wins and whether it at least draws, an
+     * exact solve then binary searches the win (loss) score. All questions share
+     * the transposition table, so later ones mostly reuse earlier work.
+     * Scores are from player 1's point of view, like the rest of the search.
+     */
+    // 1 if player 1 wins with perfect play, 0 for a draw and -1 if player 2 wins.
+    public int weakSolve(BitBoard position) {
+        startSearch(position, Long.MAX_VALUE);
+        return outcome(position);
+    }
+
+    // exact score of the position, the same value a full window search returns.
+    public int solve(BitBoard position) {
+        startSearch(position, Long.MAX_VALUE);
+        return scoreRange(position)[0];
+    }
+
+    public int weakSolve(Board board) {
+        return weakSolve(new BitBoard(board));
+    }
+
+    public int solve(Board board) {
+        return solve(new BitBoard(board));
+    }
+
+    private int outcome(BitBoard position) {
+        if (position.lastMoveWon()) {
+            return terminalScore(position) > 0 ? 1 : -1;
+        }
+        if (scoreAtLeast(position, 1)) {
+            return 1;
+        }
+        return scoreAtLeast(position, 0) ? 0 : -1;
+    }
+
+    // lowest and highest score the position can have, narrowed until they meet or
+    // the search is aborted.
+    private int[] scoreRange(BitBoard position) {
+        int[] range = initialRange(position);
+        while (range[0] < range[1] && narrow(position, range)) {
+        }
+        return range;
+    }
+
+    private static int[] initialRange(BitBoard position) {
+        if (position.lastMoveWon()) {
+            int score = terminalScore(position);
+            return new int[] { score, score };
+        }
+        // the fastest possible win is on the next move.
+        int fastest = winScore(position.moveCount + 1);
+        return new int[] { -fastest, fastest };
+    }
+
+    // asks one "is the score at least g?" question and narrows the range with the
+    // answer. asks for the outcome first, those are the cheapest questions, then
+    // binary searches the win (loss) score. returns false if the search was
+    // aborted before it got the answer.
+    private boolean narrow(BitBoard position, int[] range) {
+        int lo = range[0];
+        int hi = range[1];
+        int g;
+        if (lo < 0 && hi > 0) {
+            g = 1;
+        } else if (lo < 0 && hi == 0) {
+            g = 0;
+        } else {
+            g = lo + (hi - lo + 1) / 2;
+        }
+        boolean atLeast = scoreAtLeast(position, g);
+        if (aborted) {
+            return false;
+        }
+        if (atLeast) {
+            lo = g;
+        } else {
+            hi = g - 1;
+        }
+        // no score lies between a draw and the slowest win (loss).
+        int slowest = winScore(BitBoard.SIZE);
+        if (lo > 0) {
+            lo = Math.max(lo, slowest);
+        } else if (lo > -slowest) {
+            lo = 0;
+        }
+        if (hi < 0) {
+            hi = Math.min(hi, -slowest);
+        } else if (hi < slowest) {
+            hi = 0;
+        }
+        range[0] = lo;
+        range[1] = hi;
+        return true;
+    }
+
+    public Analysis analyze(Board board) {
+        return analyze(new BitBoard(board), null);
+    }
+
+    public Analysis analyze(Board board, Duration budget) {
+        return analyze(new BitBoard(board), budget);
+    }
+
+    /*
+     * Scores every legal column of the position, with the number of moves until
+     * the game is decided and the expected line. The columns are narrowed with the
+     * null window solver in rounds, each round asks every unsolved column one
+     * question, so all columns get their outcome before any exact score is
+     * searched. All questions share the transposition table and reuse each
+     * other's work. When the budget (may be null) runs out, the columns that
+     * aren't solved yet only get the bounds found so far.
+     */
+    public Analysis analyze(BitBoard position, Duration budget) {
+        startSearch(position, budget == null ? Long.MAX_VALUE : System.nanoTime() + budget.toNanos());
+        Analysis analysis = new Analysis(position.moveCount);
+        int[][] ranges = new int[BitBoard.WIDTH][];
+        for (int col : columnOrder) {
+            if (position.canPlay(col)) {
+                position.play(col);
+                ranges[col] = initialRange(position);
+                position.undo();
+            }
+        }
+        boolean unsolved = true;
+        while (unsolved && !aborted) {
+            unsolved = false;
+            for (int col : columnOrder) {
+                if (ranges[col] == null || ranges[col][0] == ranges[col][1]) {
+                    continue;
+                }
+                position.play(col);
+                boolean answered = narrow(position, ranges[col]);
+                position.undo();
+                if (!answered) {
+                    break;
+                }
+                unsolved |= ranges[col][0] < ranges[col][1];
+            }
+        }
+        for (int col : columnOrder) {
+            if (ranges[col] == null) {
+                continue;
+            }
+            position.play(col);
+            Analysis.Column column = new Analysis.Column(col, ranges[col][0], ranges[col][1], position.moveCount);
+            column.pv = principalVariation(position, col);
+            position.undo();
+            analysis.columns[col] = column;
+        }
+        stats.elapsedNanos = System.nanoTime() - startTime;
+        deadline = Long.MAX_VALUE;
+        analysis.stats = stats;
+        return analysis;
+    }
+
+    // the expected line after playing col, following the table's best moves as
+    // long as they are stored. immediate wins and forced moves aren't stored, the
+    // search doesn't need a table entry for them, so they are found the same way
+    // the search finds them.
+    private int[] principalVariation(BitBoard position, int col) {
+        int[] line = new int[BitBoard.SIZE];
+        int length = 0;
+        line[length++] = col;
+        int played = 0;
+        while (!position.lastMoveWon() && position.moveCount < BitBoard.SIZE) {
+            int next = -1;
+            long wins = position.threats(position.moveCount & 1) & position.playable();
+            long candidates = wins == 0 ? position.nonLosingMoves() : 0;
+            if (wins == 0 && candidates == 0) {
+                // every move loses, block one of the threats if there is one.
+                candidates = position.threats(1 - (position.moveCount & 1)) & position.playable();
+                if (candidates == 0) {
+                    candidates = position.playable();
+                }
+                candidates = Long.lowestOneBit(candidates);
+            }
+            int entry = table.probe(tableKey(position));
+            for (int c = 0; c < BitBoard.WIDTH && next == -1; c++) {
+                if (position.canPlay(c) && (wins & position.moveBit(c)) != 0) {
+                    next = c;
+                }
+            }
+            if (next == -1 && candidates != 0 && (candidates & (candidates - 1)) == 0) {
+                next = Long.numberOfTrailingZeros(candidates) / BitBoard.H1;
+            }
+            if (next == -1 && entry != 0 && TranspositionTable.bestCol(entry) != -1) {
+                next = TranspositionTable.bestCol(entry);
+                if (position.isMirrored()) {
+                    next = BitBoard.mirrorCol(next);
+                }
+            }
+            if (next == -1 || !position.canPlay(next)) {
+                break;
+            }
+            position.play(next);
+            played++;
+            line[length++] = next;
+        }
+        for (; played > 0; played--) {
+            position.undo();
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    private boolean scoreAtLeast(BitBoard position, int g) {
+        boolean isMax = position.moveCount % 2 == 0;
+        return runMinimax(position, isMax, g - 1, g, BitBoard.SIZE - position.moveCount) >= g;
+    }
+
+    private static int terminalScore(BitBoard position) {
+        return position.moveCount % 2 == 0 ? -winScore(position.moveCount) : winScore(position.moveCount);
+    }
+
+    // stops the running search and every later one from any thread, the search
+    // returns within CHECK_INTERVAL nodes as if its time had run out.
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public boolean isStopped() {
+        return stopRequested;
+    }
+
+    // resets the per search state, parallel workers call it before searching
+    // subtrees of the root themselves.
+    public void startSearch(BitBoard root, long deadline) {
+        this.stats = new SearchStats();
+        this.deadline = deadline;
+        this.aborted = false;
+        this.nodeLimit = Long.MAX_VALUE;
+        this.tableSalt = 0;
+        this.startTime = System.nanoTime();
+        this.rootMoveCount = root.moveCount;
+        for (int[] counts : history) {
+            Arrays.fill(counts, 0);
+        }
+    }
+
+    private SearchResult finishSearch(int col, int score, int depth, boolean fromBook) {
+        stats.elapsedNanos = System.nanoTime() - startTime;
+        deadline = Long.MAX_VALUE;
+        SearchResult result = new SearchResult(col, score, depth, fromBook, stats);
+        if (listener != null) {
+            listener.searchCompleted(result);
+        }
+        return result;
+    }
+
+    // best move stored in the opening book for the position, -1 if there is none.
+    private int probeBook(BitBoard position) {
+        if (book == null) {
+            return -1;
+        }
+        long key = position.key();
+        long canonicalKey = position.canonicalKey();
+        int entry = book.probe(canonicalKey);
+        if (entry == -1) {
+            return -1;
+        }
+        rootScore = OpeningBook.score(entry);
+        // the book stores the move of the canonical position.
+        return key == canonicalKey ? OpeningBook.bestCol(entry) : BitBoard.mirrorCol(OpeningBook.bestCol(entry));
+    }
+
+    private static int firstLegalMove(BitBoard position) {
+        for (int col : columnOrder) {
+            if (position.canPlay(col)) {
+                return col;
+            }
+        }
+        return -1;
+    }
+
+    // searches every root column with a full window and returns the best one, its
+    // score is left in rootScore. if the search is aborted it returns the best of
+    // the columns searched completely, -1 if there are none.
+    private int searchRoot(BitBoard position, boolean isMax, int[] order, int depth) {
+        int bestCol = -1;
+        int bestScore = isMax ? -INFINITY : INFINITY;
+        // play a winning move right away.
+        long wins = position.threats(position.moveCount & 1) & position.playable();
+        for (int col : order) {
+            if (position.canPlay(col) && (wins & position.moveBit(col)) != 0) {
+                rootScore = isMax ? winScore(position.moveCount + 1) : -winScore(position.moveCount + 1);
+                return col;
+            }
+        }
+        // in a symmetric position the columns right of the center are the mirror
+        // of the ones left of it, they can't be better.
+        boolean symmetric = position.isSymmetric();
+        // int[] scores = new int[7]; // if you want to see the evaluated scores for
+        // each available col.
+        for (int col : order) {
+            if (!position.canPlay(col) || (symmetric && col > BitBoard.WIDTH / 2)) {
+                continue;
+            }
+            position.play(col);
+            int score = runMinimax(position, !isMax, -INFINITY, INFINITY, depth - 1);
+            // scores[col] = score;
+
+            position.undo();
+            if (aborted) {
+                break;
+            }
+            if (isMax) {
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestCol = col;
+                }
+            } else {
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestCol = col;
+                }
+            }
+        }
+        rootScore = bestScore;
+
+        // // test where move is.
+        // Move bestMove = new Move(bestCol, players[1]);
+        // board.checkAvailableMove(bestMove);
+        // board.makeMove(bestMove);
+        // System.out.println("Best Score: " + bestScore);
+        // System.out.println("Best move: " + bestCol);
+        // board.printBoard();
+
+        // // test to see scores for each available col.
+        // for (int i = 0; i < scores.length; i++) {
+        // System.out.println("For column " + i + " score is: " + scores[i]);
+        // }
+
+        return bestCol;
+    }
+
+    // one off search with its own table, players keep a Minimax instance instead so
+    // the table survives between moves.
+    public static int getBestMove(Board board) {
+        return new Minimax().findBestMove(board);
+    }
+
+    public static int getBestMove(Board board, Duration budget) {
+        return new Minimax().findBestMove(board, budget);
+    }
+}
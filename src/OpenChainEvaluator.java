@@ -0,0 +1,18 @@
+// the open chain scoring of Board.evalMoveScore: the best move player 1 could
+// make against the best move player 2 could make. slower than ThreatEvaluator,
+// it rescans the rays around every column.
+public class OpenChainEvaluator implements Evaluator {
+    // evalMoveScore grows with powers of 10, scaled down to stay below a win.
+    private final static int SCALE = 100;
+
+    public int evaluate(BitBoard position) {
+        int best1 = 0;
+        int best2 = 0;
+        for (int col = 0; col < BitBoard.WIDTH; col++) {
+            best1 = Math.max(best1, position.evalMoveScore(col, 1));
+            best2 = Math.max(best2, position.evalMoveScore(col, -1));
+        }
+        int score = (best1 - best2) / SCALE;
+        return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class OpeningBook {
+    /*
+     * Solved early positions, read from a file written by OpeningBookGenerator.
+     * The file is memory-mapped and binary searched in place, so a lookup costs a
+     * few page reads and several JVMs on a machine share the same page cache.
+     *
+     * file layout:
+     * header: magic (int), version (int), max ply (int), record count (int)
+     * records, sorted by key: key (long), entry (int)
+     * an entry packs the score in the low 16 bits and the best column above them.
+     * keys are BitBoard.canonicalKey, a position and its mirror image share a
+     * record and the best column is the canonical position's.
+     */
+    public final static int MAGIC = 0x43344F42; // "C4OB"
+    public final static int VERSION = 2;
+    public final static int HEADER_BYTES = 16;
+    public final static int RECORD_BYTES = 12;
+    public final static String DEFAULT_FILE = "opening.book";
+
+    private MappedByteBuffer buffer;
+    public int maxPly;
+    public int size;
+
+    public OpeningBook(Path path) throws IOException {
+        this(path, MAGIC, "opening book");
+    }
+
+    // opens a file in the book layout with another magic, see EndgameDatabase.
+    protected OpeningBook(Path path, int magic, String kind) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != magic)
+            throw new IOException("Not a valid " + kind + ": " + path);
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported " + kind + " version " + buffer.getInt(4) + ": " + path);
+        maxPly = buffer.getInt(8);
+        size = buffer.getInt(12);
+        if (buffer.capacity() < HEADER_BYTES + (long) size * RECORD_BYTES)
+            throw new IOException("Truncated " + kind + ": " + path);
+    }
+
+    // loads the book from the working directory, returns null if there is none.
+    public static OpeningBook loadDefault() {
+        Path path = Paths.get(DEFAULT_FILE);
+        if (!Files.exists(path))
+            return null;
+        try {
+            return new OpeningBook(path);
+        } catch (IOException e) {
+            System.out.println("Could not load opening book: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // returns the entry stored for the position key, -1 if it isn't in the book.
+    public int probe(long key) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midKey = buffer.getLong(HEADER_BYTES + mid * RECORD_BYTES);
+            if (midKey < key) {
+                lo = mid + 1;
+            } else if (midKey > key) {
+                hi = mid - 1;
+            } else {
+                return buffer.getInt(HEADER_BYTES + mid * RECORD_BYTES + 8);
+            }
+        }
+        return -1;
+    }
+
+    // key of the index-th record.
+    public long key(int index) {
+        return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    public static int entry(int score, int bestCol) {
+        return (score & 0xFFFF) | (bestCol << 16);
+    }
+
+    public static int score(int entry) {
+        return (short) entry;
+    }
+
+    public static int bestCol(int entry) {
+        return entry >>> 16;
+    }
+
+    // writes records (key and entry pairs, already sorted by key) in the book format.
+    public static void write(Path path, int maxPly, long[] keys, int[] entries) throws IOException {
+        write(path, MAGIC, maxPly, keys, entries);
+    }
+
+    public static void write(Path path, int magic, int maxPly, long[] keys, int[] entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            out.putInt(magic).putInt(VERSION).putInt(maxPly).putInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                if (out.remaining() < RECORD_BYTES) {
+                    out.flip();
+                    while (out.hasRemaining())
+                        channel.write(out);
+                    out.clear();
+                }
+                out.putLong(keys[i]).putInt(entries[i]);
+            }
+            out.flip();
+            while (out.hasRemaining())
+                channel.write(out);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OpeningBookGenerator {
+    /*
+     * Offline generator for the opening book. Enumerates every position reachable
+     * from a start position up to a given ply, solves each one with Minimax and
+     * writes them sorted by key. Solving is spread over a thread pool, every
+     * worker has its own Minimax and all of them share one transposition table.
+     *
+     * The start position has to be given: solving takes seconds for a position
+     * after 8 moves, about half a minute after 4 and far too long for the empty
+     * board, and every position from the start on is solved. Each extra ply
+     * multiplies the number of positions by up to 7, a start of 4 moves and a
+     * max ply of 6 (57 positions) takes about 4 minutes on one core.
+     *
+     * usage: java OpeningBookGenerator <start moves> <max ply> [output file] [threads]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: java OpeningBookGenerator <start moves> <max ply> [output file] [threads]");
+            return;
+        }
+        String start = args[0];
+        int maxPly = Integer.parseInt(args[1]);
+        Path output = Paths.get(args.length > 2 ? args[2] : OpeningBook.DEFAULT_FILE);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        generate(start, maxPly, threads, output);
+    }
+
+    public static void generate(String start, int maxPly, int threads, Path output) throws IOException {
+        if (maxPly < start.length())
+            throw new IllegalArgumentException("max ply " + maxPly + " is before the start position");
+        BitBoard root = BitBoard.fromMoves(start);
+
+        List<BitBoard> positions = new ArrayList<BitBoard>();
+        collect(root, maxPly, new HashSet<Long>(), positions);
+        // deepest positions first, their table entries speed up the shallower ones.
+        positions.sort((a, b) -> b.moveCount - a.moveCount);
+        System.out.println("Solving " + positions.size() + " positions up to ply " + maxPly);
+
+        long startTime = System.nanoTime();
+        TranspositionTable table = new TranspositionTable(256, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        ThreadLocal<Minimax> workers = ThreadLocal.withInitial(() -> new Minimax(table));
+        AtomicInteger solved = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (BitBoard position : positions) {
+            results.add(pool.submit(() -> {
+                SearchResult result = workers.get().search(position);
+                int done = solved.incrementAndGet();
+                if (done % 1000 == 0)
+                    System.out.println("Solved " + done + " / " + positions.size());
+                // stored for the canonical position, mirrored if the key is the mirror's.
+                int col = position.key() == position.canonicalKey() ? result.col : BitBoard.mirrorCol(result.col);
+                return OpeningBook.entry(result.score, col);
+            }));
+        }
+
+        long[] keys = new long[positions.size()];
+        int[] entries = new int[positions.size()];
+        long[] sorted = new long[positions.size()];
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                // the worker plays moves on the position while it solves it, its key
+                // is only read once the result is in.
+                entries[i] = results.get(i).get();
+                keys[i] = positions.get(i).canonicalKey();
+                sorted[i] = keys[i];
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Opening book generation failed", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        // sort the records by key.
+        Arrays.sort(sorted);
+        int[] sortedEntries = new int[entries.length];
+        for (int i = 0; i < keys.length; i++)
+            sortedEntries[Arrays.binarySearch(sorted, keys[i])] = entries[i];
+        OpeningBook.write(output, maxPly, sorted, sortedEntries);
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Wrote %d positions to %s in %.1f s%n", sorted.length, output, seconds);
+    }
+
+    // depth first enumeration of the positions that are still being played, each
+    // position is only kept once however many move orders reach it, and only one
+    // of a position and its mirror image.
+    private static void collect(BitBoard position, int maxPly, HashSet<Long> seen, List<BitBoard> positions) {
+        if (position.lastMoveWon() || position.moveCount >= BitBoard.SIZE || !seen.add(position.canonicalKey()))
+            return;
+        positions.add(position.copy());
+        if (position.moveCount >= maxPly)
+            return;
+        for (int col = 0; col < BitBoard.WIDTH; col++) {
+            if (position.canPlay(col)) {
+                position.play(col);
+                collect(position, maxPly, seen, positions);
+                position.undo();
+            }
+        }
+    }
+}
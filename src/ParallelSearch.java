@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelSearch {
+    /*
+     * Root splitting search: every root column is searched as its own task on a
+     * fork-join pool. The workers share one transposition table (lock-free, see
+     * TranspositionTable) and the best root score found so far, which is used as
+     * the bound of the columns that start later.
+     * Each column is searched with a window one below the shared bound, so a
+     * column that ties the best score still gets its exact score and ties are
+     * broken in columnOrder, giving the same move as Minimax.findBestMove.
+     */
+    private ForkJoinPool pool;
+    public TranspositionTable table;
+    public int threads;
+    // counters of the last search, summed over all workers.
+    public SearchStats stats = new SearchStats();
+    // score of the last search's best move, from player 1's point of view.
+    public int score;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        this.threads = threads;
+        this.table = table;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable());
+    }
+
+    public int findBestMove(Board board) {
+        BitBoard root = new BitBoard(board);
+        boolean isMax = root.moveCount % 2 == 0;
+        AtomicInteger bound = new AtomicInteger(isMax ? -Minimax.INFINITY : Minimax.INFINITY);
+        SearchStats total = new SearchStats();
+        long start = System.nanoTime();
+
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        List<Integer> cols = new ArrayList<Integer>();
+        // in a symmetric position only the columns up to the center are searched.
+        boolean symmetric = root.isSymmetric();
+        for (int col : Minimax.columnOrder) {
+            if (!root.canPlay(col) || (symmetric && col > BitBoard.WIDTH / 2)) {
+                continue;
+            }
+            cols.add(col);
+            tasks.add(() -> {
+                // each worker has its own position and move buffers.
+                BitBoard position = root.copy();
+                Minimax minimax = new Minimax(table);
+                minimax.startSearch(root, Long.MAX_VALUE);
+                position.play(col);
+                int score;
+                if (isMax) {
+                    int alpha = Math.max(bound.get() - 1, -Minimax.INFINITY);
+                    score = minimax.runMinimax(position, false, alpha, Minimax.INFINITY,
+                            BitBoard.SIZE - position.moveCount);
+                    bound.accumulateAndGet(score, Math::max);
+                } else {
+                    int beta = Math.min(bound.get() + 1, Minimax.INFINITY);
+                    score = minimax.runMinimax(position, true, -Minimax.INFINITY, beta,
+                            BitBoard.SIZE - position.moveCount);
+                    bound.accumulateAndGet(score, Math::min);
+                }
+                synchronized (total) {
+                    total.add(minimax.stats);
+                }
+                return score;
+            });
+        }
+
+        List<Future<Integer>> results = pool.invokeAll(tasks);
+        int bestCol = -1;
+        int bestScore = isMax ? -Minimax.INFINITY : Minimax.INFINITY;
+        for (int i = 0; i < results.size(); i++) {
+            int score;
+            try {
+                score = results.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Parallel search failed", e);
+            }
+            if (isMax ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestCol = cols.get(i);
+            }
+        }
+        total.elapsedNanos = System.nanoTime() - start;
+        stats = total;
+        score = bestScore;
+        return bestCol;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // prints the speedup of the parallel search over the single threaded one for 1
+    // up to the given number of threads, on positions given as move histories.
+    public static void speedupCurve(int maxThreads, String[] positions) {
+        Player[] players = { new Player("Player 1", Colour.RED), new Player("Player 2", Colour.YELLOW) };
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ParallelSearch search = new ParallelSearch(threads);
+            long start = System.nanoTime();
+            for (String moves : positions) {
+                search.table.clear();
+                search.findBestMove(new Board(moves, players));
+            }
+            double elapsed = (System.nanoTime() - start) / 1e6;
+            if (threads == 1)
+                baseline = elapsed;
+            System.out.printf("threads: %2d  time: %10.1f ms  speedup: %.2fx%n", threads, elapsed, baseline / elapsed);
+            search.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        String[] positions = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length)
+                : new String[] { "156245435421442634", "640143630114643526", "016554604012062025" };
+        speedupCurve(maxThreads, positions);
+    }
+}
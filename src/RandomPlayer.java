@@ -0,0 +1,22 @@
+import java.util.Random;
+
+public class RandomPlayer extends Player {
+    private Random random;
+
+    public RandomPlayer(Colour colour, long seed) {
+        super("Random", colour);
+        this.random = new Random(seed);
+    }
+
+    public RandomPlayer(Colour colour) {
+        this(colour, System.nanoTime());
+    }
+
+    // picks any column that isn't full.
+    public Move getMove(Board board) {
+        int[] moves = board.possibleMoves();
+        Move move = new Move(moves[random.nextInt(moves.length)], this);
+        board.checkAvailableMove(move);
+        return move;
+    }
+}
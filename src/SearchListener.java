@@ -0,0 +1,4 @@
+// notified after every search, e.g. to feed the numbers into monitoring.
+public interface SearchListener {
+    void searchCompleted(SearchResult result);
+}
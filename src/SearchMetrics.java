@@ -0,0 +1,93 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class SearchMetrics implements SearchListener, SearchMetricsMBean {
+    /*
+     * Running totals over all searches of the players it is attached to, safe to
+     * share between concurrent games. Can be registered as an MBean so the numbers
+     * show up in JMX based monitoring.
+     */
+    private LongAdder searches = new LongAdder();
+    private LongAdder nodes = new LongAdder();
+    private LongAdder expandedNodes = new LongAdder();
+    private LongAdder childrenSearched = new LongAdder();
+    private LongAdder betaCutoffs = new LongAdder();
+    private LongAdder firstMoveCutoffs = new LongAdder();
+    private LongAdder tableProbes = new LongAdder();
+    private LongAdder tableHits = new LongAdder();
+    private LongAdder elapsedNanos = new LongAdder();
+    private LongAccumulator maxElapsedNanos = new LongAccumulator(Math::max, 0);
+
+    @Override
+    public void searchCompleted(SearchResult result) {
+        SearchStats stats = result.stats;
+        searches.increment();
+        nodes.add(stats.nodes);
+        expandedNodes.add(stats.expandedNodes);
+        childrenSearched.add(stats.childrenSearched);
+        betaCutoffs.add(stats.betaCutoffs);
+        firstMoveCutoffs.add(stats.firstMoveCutoffs);
+        tableProbes.add(stats.tableProbes);
+        tableHits.add(stats.tableHits);
+        elapsedNanos.add(stats.elapsedNanos);
+        maxElapsedNanos.accumulate(stats.elapsedNanos);
+    }
+
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public double getNodesPerSecond() {
+        long nanos = elapsedNanos.sum();
+        return nanos == 0 ? 0 : nodes.sum() * 1e9 / nanos;
+    }
+
+    public double getAverageSearchMillis() {
+        long count = searches.sum();
+        return count == 0 ? 0 : elapsedNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxSearchMillis() {
+        return maxElapsedNanos.get() / 1e6;
+    }
+
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = betaCutoffs.sum();
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs.sum() / cutoffs;
+    }
+
+    public double getTableHitRate() {
+        long probes = tableProbes.sum();
+        return probes == 0 ? 0 : (double) tableHits.sum() / probes;
+    }
+
+    public double getBranchingFactor() {
+        long expanded = expandedNodes.sum();
+        return expanded == 0 ? 0 : (double) childrenSearched.sum() / expanded;
+    }
+
+    public void reset() {
+        searches.reset();
+        nodes.reset();
+        expandedNodes.reset();
+        childrenSearched.reset();
+        betaCutoffs.reset();
+        firstMoveCutoffs.reset();
+        tableProbes.reset();
+        tableHits.reset();
+        elapsedNanos.reset();
+        maxElapsedNanos.reset();
+    }
+}
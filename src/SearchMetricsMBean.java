@@ -0,0 +1,19 @@
+public interface SearchMetricsMBean {
+    long getSearches();
+
+    long getNodes();
+
+    double getNodesPerSecond();
+
+    double getAverageSearchMillis();
+
+    double getMaxSearchMillis();
+
+    double getFirstMoveCutoffRate();
+
+    double getTableHitRate();
+
+    double getBranchingFactor();
+
+    void reset();
+}
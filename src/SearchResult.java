@@ -0,0 +1,22 @@
+public class SearchResult {
+    // best column and its score (from player 1's point of view).
+    public int col;
+    public int score;
+    // depth of the last completed iteration, the remaining moves for a full solve.
+    public int depth;
+    public boolean fromBook;
+    public SearchStats stats;
+
+    public SearchResult(int col, int score, int depth, boolean fromBook, SearchStats stats) {
+        this.col = col;
+        this.score = score;
+        this.depth = depth;
+        this.fromBook = fromBook;
+        this.stats = stats;
+    }
+
+    @Override
+    public String toString() {
+        return "col: " + col + ", score: " + score + ", depth: " + depth + (fromBook ? " (book)" : "") + ", " + stats;
+    }
+}
@@ -0,0 +1,58 @@
+public class SearchStats {
+    /*
+     * Counters of a single search. They are plain fields bumped by the searching
+     * thread, so keeping them on costs a few increments per node.
+     */
+    public long nodes;
+    // nodes whose moves were searched and the number of moves searched below them.
+    public long expandedNodes;
+    public long childrenSearched;
+    public long betaCutoffs;
+    // cutoffs caused by the first move searched, a measure of move ordering.
+    public long firstMoveCutoffs;
+    public long tableProbes;
+    public long tableHits;
+    // positions found in the endgame database.
+    public long endgameHits;
+    // deepest ply below the root that was reached.
+    public int maxDepth;
+    public long elapsedNanos;
+
+    public double firstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    public double tableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    // average number of moves searched per expanded node.
+    public double branchingFactor() {
+        return expandedNodes == 0 ? 0 : (double) childrenSearched / expandedNodes;
+    }
+
+    // adds the counters of another search, e.g. of a parallel worker.
+    public void add(SearchStats other) {
+        nodes += other.nodes;
+        expandedNodes += other.expandedNodes;
+        childrenSearched += other.childrenSearched;
+        betaCutoffs += other.betaCutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        endgameHits += other.endgameHits;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "nodes: %d, time: %.3f ms, nodes/s: %.0f, max depth: %d, branching factor: %.2f, beta cutoffs: %d (%.1f%% on first move), table hit rate: %.1f%%, endgame hits: %d",
+                nodes, elapsedNanos / 1e6, nodesPerSecond(), maxDepth, branchingFactor(), betaCutoffs,
+                100 * firstMoveCutoffRate(), 100 * tableHitRate(), endgameHits);
+    }
+}
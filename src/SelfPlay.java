@@ -0,0 +1,161 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SelfPlay {
+    /*
+     * Plays many headless games in parallel, AI against AI or AI against a random
+     * player, and streams every finished game to a CSV (.csv), binary game archive
+     * (.c4g, see GameArchiveWriter, without the move timings) or JSON lines file.
+     * Each worker thread reuses its own players, all of them search with one
+     * transposition table of the run's own, so positions one game searched are
+     * found by the games after it. Sides are swapped every game, so wins are reported by
+     * player (AI or random) as well as by seat.
+     * The move latency percentiles are over at most LATENCY_SAMPLES moves, a
+     * uniform sample of all of them (reservoir sampling), so memory doesn't grow
+     * with the number of games.
+     *
+     * With a journal directory the moves of the running games are journaled
+     * (see GameJournal) and its size and commit count are printed at the end.
+     *
+     * usage: java SelfPlay <games> <threads> <ai|random> <ms per move> <output file>
+     * [random opening plies] [table MB] [journal directory]
+     */
+    public final static int LATENCY_SAMPLES = 1 << 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.out.println(
+                    "usage: java SelfPlay <games> <threads> <ai|random> <ms per move> <output file> [random opening plies] [table MB] [journal directory]");
+            return;
+        }
+        int games = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        boolean vsRandom = args[2].equals("random");
+        Duration moveTime = Duration.ofMillis(Long.parseLong(args[3]));
+        String output = args[4];
+        int openingPlies = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+        int tableMB = args.length > 6 ? Integer.parseInt(args[6]) : TranspositionTable.SHARED_SIZE_MB;
+        GameJournal journal = args.length > 7 ? new GameJournal(Paths.get(args[7])) : null;
+        try {
+            run(games, threads, vsRandom, moveTime, output, openingPlies, tableMB, journal);
+        } finally {
+            if (journal != null)
+                journal.close();
+        }
+        if (journal != null)
+            System.out.printf("journal: %d commits, %d compactions, %.2f MB%n", journal.commits,
+                    journal.compactions, journal.sizeBytes() / (1024.0 * 1024.0));
+    }
+
+    public static void run(int games, int threads, boolean vsRandom, Duration moveTime, String output,
+            int openingPlies, int tableMB) throws IOException {
+        run(games, threads, vsRandom, moveTime, output, openingPlies, tableMB, null);
+    }
+
+    public static void run(int games, int threads, boolean vsRandom, Duration moveTime, String output,
+            int openingPlies, int tableMB, GameJournal journal) throws IOException {
+        boolean csv = output.endsWith(".csv");
+        boolean binary = output.endsWith(GameArchiveWriter.EXTENSION);
+        TranspositionTable table = new TranspositionTable(tableMB,
+                TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        ThreadLocal<Player[]> players = ThreadLocal.withInitial(() -> {
+            AIPlayer ai = new AIPlayer(Colour.RED, table);
+            ai.moveTime = moveTime;
+            if (vsRandom)
+                return new Player[] { ai, new RandomPlayer(Colour.YELLOW) };
+            AIPlayer other = new AIPlayer(Colour.YELLOW, table);
+            other.moveTime = moveTime;
+            return new Player[] { ai, other };
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ExecutorCompletionService<GameRecord> completed = new ExecutorCompletionService<GameRecord>(pool);
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            int id = i;
+            completed.submit(() -> {
+                Player[] p = players.get();
+                GameEngine engine = new GameEngine(openingPlies, id);
+                engine.journal = journal;
+                return id % 2 == 0 ? engine.play(id, p[0], p[1]) : engine.play(id, p[1], p[0]);
+            });
+        }
+
+        int[] outcomes = new int[3];
+        Map<String, Integer> wins = new TreeMap<String, Integer>();
+        long[] latencies = new long[(int) Math.min((long) games * Board.WIDTH * Board.HEIGHT, LATENCY_SAMPLES)];
+        long moveCount = 0;
+        long maxLatency = 0;
+        Random sampler = new Random(games);
+        try (BufferedWriter writer = binary ? null : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+                GameArchiveWriter archive = binary ? new GameArchiveWriter(Paths.get(output)) : null) {
+            if (csv) {
+                writer.write(GameRecord.csvHeader());
+                writer.newLine();
+            }
+            // results are written in the order games finish.
+            for (int i = 0; i < games; i++) {
+                GameRecord record = completed.take().get();
+                if (binary) {
+                    archive.write(record);
+                } else {
+                    writer.write(csv ? record.toCsv() : record.toJson());
+                    writer.newLine();
+                }
+                outcomes[record.winner + 1]++;
+                wins.putIfAbsent(record.player1, 0);
+                wins.putIfAbsent(record.player2, 0);
+                if (record.winner != GameRecord.DRAW)
+                    wins.merge(record.winner == 0 ? record.player1 : record.player2, 1, Integer::sum);
+                for (long nanos : record.moveNanos) {
+                    // the sample keeps every move with the same probability.
+                    long slot = moveCount < latencies.length ? moveCount
+                            : (long) (sampler.nextDouble() * (moveCount + 1));
+                    if (slot < latencies.length)
+                        latencies[(int) slot] = nanos;
+                    moveCount++;
+                    maxLatency = Math.max(maxLatency, nanos);
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Self play failed", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int samples = (int) Math.min(moveCount, latencies.length);
+        Arrays.sort(latencies, 0, samples);
+        System.out.printf("%d games in %.2f s: %.2f games/s, %.0f moves/s%n", games, seconds, games / seconds,
+                moveCount / seconds);
+        // players of the same kind (AI against AI) are only told apart by seat.
+        if (wins.size() > 1) {
+            StringBuilder byPlayer = new StringBuilder("wins by player:");
+            for (Map.Entry<String, Integer> player : wins.entrySet())
+                byPlayer.append(String.format(" %s %d (%.1f%%),", player.getKey(), player.getValue(),
+                        100.0 * player.getValue() / games));
+            System.out.println(byPlayer + " draws: " + outcomes[0]);
+        }
+        System.out.printf("player 1 wins: %d, player 2 wins: %d, draws: %d%n", outcomes[1], outcomes[2], outcomes[0]);
+        if (samples > 0) {
+            System.out.printf("move latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                    latencies[samples / 2] / 1e6, latencies[(int) (samples * 0.9)] / 1e6,
+                    latencies[(int) (samples * 0.99)] / 1e6, maxLatency / 1e6);
+        }
+        System.out.printf("table: hit rate %.1f%%, torn reads %d (%.4f%%), evictions %d, occupancy %.1f%%%n",
+                table.hitRate() * 100, table.tornReads.sum(), table.contentionRate() * 100, table.evictions.sum(),
+                table.occupancy() * 100);
+    }
+}
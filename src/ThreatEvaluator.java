@@ -0,0 +1,7 @@
+// difference between the number of cells that would complete four for player 1
+// and for player 2, read from the masks BitBoard keeps up to date.
+public class ThreatEvaluator implements Evaluator {
+    public int evaluate(BitBoard position) {
+        return Long.bitCount(position.threats(0)) - Long.bitCount(position.threats(1));
+    }
+}
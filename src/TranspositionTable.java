@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+public class TranspositionTable {
+    /*
+     * Fixed size cache of searched positions, keyed by the zobrist hash of the
+     * position. Everything is preallocated in two primitive arrays so probing and
+     * storing never allocate. An entry is packed into a single int:
+     * bits 0-15 score, bits 16-21 depth, bits 22-23 bound type, bits 24-26 best
+     * column + 1 (0 if there is none) and bit 31 marks the slot as used.
+     * The key array holds the hash xor'ed with the entry, so the table can be
+     * shared by several searching threads without locks: a key and entry pair
+     * torn by a concurrent store no longer matches the hash and reads as a miss.
+     * A valid entry's hash always maps to its own slot, so a pair decoding to a
+     * hash of another slot is known to be torn and counted as contention.
+     *
+     * shared() is one table for the whole process, every AIPlayer searches with
+     * it unless given its own. Scores are stored for absolute move counts, so an
+     * entry from one game is just as valid in any other game reaching the same
+     * position, and the popular openings are only searched once.
+     *
+     * The used entries can be saved to a file and loaded into a table of any size
+     * later on, so a restarted process doesn't start cold.
+     * file layout:
+     * header: magic (int), version (int), fingerprint (long), record count (int),
+     * crc32 of the records (int)
+     * records: hash (long), entry (int)
+     * The fingerprint identifies the hashing and scoring the entries were made
+     * with (see Minimax.fingerprint), a file with another fingerprint is rejected.
+     */
+    public enum ReplacementPolicy {
+        // keep the entry searched to the greater depth, it saved more work.
+        DEPTH_PREFERRED,
+        // always keep the newest entry.
+        ALWAYS_REPLACE
+    }
+
+    public final static int EXACT = 0;
+    public final static int LOWER_BOUND = 1;
+    public final static int UPPER_BOUND = 2;
+
+    // one long key and one int entry.
+    public final static int ENTRY_BYTES = 12;
+    public final static int DEFAULT_SIZE_MB = 16;
+    public final static int SHARED_SIZE_MB = 64;
+
+    public final static int FILE_MAGIC = 0x43345454; // "C4TT"
+    public final static int FILE_VERSION = 1;
+    public final static int FILE_HEADER_BYTES = 24;
+
+    private final long[] keys;
+    private final int[] entries;
+    private final int indexMask;
+    public ReplacementPolicy policy;
+
+    // counters, safe to update from any number of searching threads.
+    public final LongAdder probes = new LongAdder();
+    public final LongAdder hits = new LongAdder();
+    // probes that found the slot holding another position.
+    public final LongAdder collisions = new LongAdder();
+    // probes that found a key and entry written by two different stores.
+    public final LongAdder tornReads = new LongAdder();
+    public final LongAdder stores = new LongAdder();
+    // stores that replaced another position, and stores the policy turned down.
+    public final LongAdder evictions = new LongAdder();
+    public final LongAdder rejections = new LongAdder();
+
+    private static TranspositionTable shared;
+
+    public TranspositionTable(int sizeMB, ReplacementPolicy policy) {
+        if (sizeMB < 1)
+            throw new IllegalArgumentException("Transposition table size must be at least 1 MB");
+        // largest power of two number of entries that fits in the given size.
+        long maxEntries = (long) sizeMB * 1024 * 1024 / ENTRY_BYTES;
+        int size = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+        this.keys = new long[size];
+        this.entries = new int[size];
+        this.indexMask = size - 1;
+        this.policy = policy;
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    // the table shared by the whole process, created with SHARED_SIZE_MB on first
+    // use unless configureShared was called before.
+    public static synchronized TranspositionTable shared() {
+        if (shared == null)
+            shared = new TranspositionTable(SHARED_SIZE_MB, ReplacementPolicy.DEPTH_PREFERRED);
+        return shared;
+    }
+
+    // replaces the shared table with an empty one of the given size and policy.
+    // players created before keep searching with the old table.
+    public static synchronized TranspositionTable configureShared(int sizeMB, ReplacementPolicy policy) {
+        shared = new TranspositionTable(sizeMB, policy);
+        return shared;
+    }
+
+    // returns the packed entry for the hash, 0 if the position isn't stored.
+    public int probe(long hash) {
+        probes.increment();
+        int i = (int) hash & indexMask;
+        int entry = entries[i];
+        if (entry == 0)
+            return 0;
+        long stored = keys[i] ^ entry;
+        if (stored == hash) {
+            hits.increment();
+            return entry;
+        }
+        if (((int) stored & indexMask) != i) {
+            tornReads.increment();
+        } else {
+            collisions.increment();
+        }
+        return 0;
+    }
+
+    public void store(long hash, int score, int depth, int flag, int bestCol) {
+        int entry = (score & 0xFFFF) | (depth << 16) | (flag << 22) | ((bestCol + 1) << 24) | (1 << 31);
+        if (put(hash, entry)) {
+            stores.increment();
+        } else {
+            rejections.increment();
+        }
+    }
+
+    private boolean put(long hash, int entry) {
+        int i = (int) hash & indexMask;
+        int old = entries[i];
+        boolean other = old != 0 && (keys[i] ^ old) != hash;
+        if (policy == ReplacementPolicy.DEPTH_PREFERRED && other && depth(old) > depth(entry))
+            return false;
+        keys[i] = hash ^ entry;
+        entries[i] = entry;
+        if (other)
+            evictions.increment();
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+        for (LongAdder counter : new LongAdder[] { probes, hits, collisions, tornReads, stores, evictions,
+                rejections })
+            counter.reset();
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long sizeBytes() {
+        return (long) entries.length * ENTRY_BYTES;
+    }
+
+    public double hitRate() {
+        long probed = probes.sum();
+        return probed == 0 ? 0 : (double) hits.sum() / probed;
+    }
+
+    // share of probes that read an entry torn by a concurrent store.
+    public double contentionRate() {
+        long probed = probes.sum();
+        return probed == 0 ? 0 : (double) tornReads.sum() / probed;
+    }
+
+    // share of slots holding an entry, sampled from every 64th slot.
+    public double occupancy() {
+        int used = 0;
+        int sampled = 0;
+        for (int i = 0; i < entries.length; i += 64, sampled++) {
+            if (entries[i] != 0)
+                used++;
+        }
+        return (double) used / sampled;
+    }
+
+    public String statsJson() {
+        return String.format(
+                "{\"sizeMB\": %d, \"policy\": \"%s\", \"occupancy\": %.4f, \"probes\": %d, \"hits\": %d, \"hitRate\": %.4f, "
+                        + "\"collisions\": %d, \"tornReads\": %d, \"contentionRate\": %.6f, \"stores\": %d, "
+                        + "\"evictions\": %d, \"rejections\": %d}",
+                sizeBytes() >> 20, policy, occupancy(), probes.sum(), hits.sum(), hitRate(), collisions.sum(),
+                tornReads.sum(), contentionRate(), stores.sum(), evictions.sum(), rejections.sum());
+    }
+
+    public void save(Path path, long fingerprint) throws IOException {
+        save(path, fingerprint, List.of(this));
+    }
+
+    // writes the used entries of the tables to one file. the file is written next
+    // to the target and then moved over it, so a crash never leaves half a file.
+    // tables may be searched while they are saved, torn entries are skipped.
+    public static void save(Path path, long fingerprint, List<TranspositionTable> tables) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            channel.position(FILE_HEADER_BYTES);
+            for (TranspositionTable table : tables) {
+                for (int i = 0; i < table.entries.length; i++) {
+                    int entry = table.entries[i];
+                    long hash = table.keys[i] ^ entry;
+                    if (entry == 0 || ((int) hash & table.indexMask) != i)
+                        continue;
+                    if (out.remaining() < ENTRY_BYTES)
+                        flush(channel, out, crc);
+                    out.putLong(hash).putInt(entry);
+                    count++;
+                }
+            }
+            flush(channel, out, crc);
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putLong(fingerprint).putInt(count)
+                    .putInt((int) crc.getValue());
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out, CRC32 crc) throws IOException {
+        out.flip();
+        crc.update(out.array(), 0, out.limit());
+        while (out.hasRemaining())
+            channel.write(out);
+        out.clear();
+    }
+
+    // adds the entries saved in a file to the table, the replacement policy
+    // decides between them and entries already in the table. returns the number
+    // of records read.
+    public int load(Path path, long fingerprint) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.capacity() < FILE_HEADER_BYTES || in.getInt(0) != FILE_MAGIC)
+            throw new IOException("Not a transposition table file: " + path);
+        if (in.getInt(4) != FILE_VERSION)
+            throw new IOException("Unsupported transposition table version " + in.getInt(4) + ": " + path);
+        if (in.getLong(8) != fingerprint)
+            throw new IOException("Transposition table was saved by a different search: " + path);
+        int count = in.getInt(16);
+        if (in.capacity() != FILE_HEADER_BYTES + (long) count * ENTRY_BYTES)
+            throw new IOException("Truncated transposition table: " + path);
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().position(FILE_HEADER_BYTES));
+        if ((int) crc.getValue() != in.getInt(20))
+            throw new IOException("Transposition table checksum mismatch: " + path);
+        for (int i = 0; i < count; i++) {
+            int offset = FILE_HEADER_BYTES + i * ENTRY_BYTES;
+            put(in.getLong(offset), in.getInt(offset + 8));
+        }
+        return count;
+    }
+
+    public static int score(int entry) {
+        return (short) entry;
+    }
+
+    public static int depth(int entry) {
+        return (entry >>> 16) & 0x3F;
+    }
+
+    public static int flag(int entry) {
+        return (entry >>> 22) & 0x3;
+    }
+
+    // best column, -1 if no move was recorded.
+    public static int bestCol(int entry) {
+        return ((entry >>> 24) & 0x7) - 1;
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class AIPlayerTest {
+    // solving this takes far longer than any of the waits below.
+    private final static String EARLY = "33";
+
+    @Test
+    public void cancellingFreesTheExecutorThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AIPlayer player = player();
+            CompletableFuture<Move> future = player.getMoveAsync(board(EARLY), executor);
+            Thread.sleep(100);
+            assertTrue(future.cancel(true));
+            // only runs once the search has given the thread back.
+            assertEquals("freed", executor.submit(() -> "freed").get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void moveNowCompletesWithALegalColumn() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AIPlayer player = player();
+            CompletableFuture<Move> future = player.getMoveAsync(board(EARLY), executor);
+            Thread.sleep(100);
+            player.moveNow();
+            Move move = future.get(5, TimeUnit.SECONDS);
+            assertTrue(BitBoard.fromMoves(EARLY).canPlay(move.col));
+            assertEquals(0, player.lastSearch.depth);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static AIPlayer player() {
+        return new AIPlayer(Colour.RED,
+                new TranspositionTable(16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    private static Board board(String moves) {
+        Player[] players = { new Player("Player 1", Colour.RED), new Player("Player 2", Colour.YELLOW) };
+        return new Board(moves, players);
+    }
+}
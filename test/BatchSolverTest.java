@@ -0,0 +1,34 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchSolverTest {
+    @Test
+    public void benchmarkLinesGetTheirExpectedScores() {
+        // lines of the benchmark files with their expected scores, 1-based columns.
+        assertEquals(1, solve("7422341735647741166133573473242566"));
+        assertEquals(-1, solve("2252576253462244111563365343671351441"));
+    }
+
+    @Test
+    public void scoresAreFromThePlayerToMove() {
+        assertEquals(0, BatchSolver.toSideToMove(0, 20));
+        // player 1 to move wins with the last cell, and a move earlier.
+        assertEquals(1, BatchSolver.toSideToMove(Minimax.winScore(41), 34));
+        assertEquals(2, BatchSolver.toSideToMove(Minimax.winScore(39), 34));
+        assertEquals(-1, BatchSolver.toSideToMove(-Minimax.winScore(42), 34));
+        // player 2 to move.
+        assertEquals(1, BatchSolver.toSideToMove(-Minimax.winScore(42), 37));
+        assertEquals(3, BatchSolver.toSideToMove(-Minimax.winScore(38), 37));
+        assertEquals(-1, BatchSolver.toSideToMove(Minimax.winScore(41), 37));
+    }
+
+    private static int solve(String moves) {
+        BitBoard position = new BitBoard();
+        for (int i = 0; i < moves.length(); i++)
+            position.play(moves.charAt(i) - '1');
+        Minimax minimax = new Minimax(
+                new TranspositionTable(16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+        return BatchSolver.toSideToMove(minimax.solve(position), position.moveCount);
+    }
+}
@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class EndgameDatabaseTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void emptyDatabaseMissesEveryProbe() throws IOException {
+        EndgameDatabase database = write(new long[0], new int[0]);
+        assertEquals(0, database.size);
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(-1, database.probe(random.nextLong() >>> 15));
+    }
+
+    @Test
+    public void singleRecordIsFound() throws IOException {
+        long key = 0x123456789AL;
+        int entry = OpeningBook.entry(-960, 3);
+        EndgameDatabase database = write(new long[] { key }, new int[] { entry });
+        assertEquals(entry, database.probe(key));
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            long other = random.nextLong() >>> 15;
+            if (other != key)
+                assertEquals(-1, database.probe(other));
+        }
+    }
+
+    @Test
+    public void everyRecordIsFound() throws IOException {
+        Random random = new Random(3);
+        long[] keys = new long[5000];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = random.nextLong() >>> 15;
+        Arrays.sort(keys);
+        int[] entries = new int[keys.length];
+        for (int i = 0; i < entries.length; i++)
+            entries[i] = OpeningBook.entry(random.nextInt(2001) - 1000, random.nextInt(BitBoard.WIDTH));
+        EndgameDatabase database = write(keys, entries);
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(entries[i], database.probe(keys[i]));
+    }
+
+    @Test
+    public void builtDatabaseHoldsExactScoresBelowTheSeeds() throws IOException {
+        int maxEmpty = 8;
+        List<int[]> games = new ArrayList<int[]>();
+        Random random = new Random(4);
+        while (games.size() < 20) {
+            BitBoard position = new BitBoard();
+            int[] moves = new int[BitBoard.SIZE - maxEmpty];
+            while (position.moveCount < moves.length && !position.lastMoveWon()) {
+                int col = random.nextInt(BitBoard.WIDTH);
+                if (position.canPlay(col)) {
+                    moves[position.moveCount] = col;
+                    position.play(col);
+                }
+            }
+            if (!position.lastMoveWon())
+                games.add(moves);
+        }
+        Path file = directory.resolve("built.db");
+        EndgameDatabaseBuilder.build(games, maxEmpty, 2, file);
+        EndgameDatabase database = new EndgameDatabase(file);
+        // the seeds and the positions below them.
+        assertTrue(database.size > games.size());
+        Minimax minimax = new Minimax(
+                new TranspositionTable(1, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+        for (int i = 0; i < database.size; i += 97) {
+            BitBoard position = BitBoard.fromKey(database.key(i));
+            assertTrue(database.covers(position.moveCount));
+            minimax.table.clear();
+            assertEquals(minimax.search(position).score, OpeningBook.score(database.probe(database.key(i))));
+        }
+
+        // searches from the seeds' positions are answered by the database below
+        // them, with the same scores.
+        long hits = 0;
+        for (int[] moves : games) {
+            BitBoard seed = new BitBoard();
+            for (int col : moves)
+                seed.play(col);
+            minimax.endgame = null;
+            minimax.table.clear();
+            int score = minimax.search(seed).score;
+            minimax.endgame = database;
+            minimax.table.clear();
+            assertEquals(score, minimax.search(seed).score);
+            hits += minimax.stats.endgameHits;
+        }
+        assertTrue(hits > 0);
+    }
+
+    private EndgameDatabase write(long[] keys, int[] entries) throws IOException {
+        Path file = directory.resolve("endgame.db");
+        OpeningBook.write(file, EndgameDatabase.MAGIC, 12, keys, entries);
+        return new EndgameDatabase(file);
+    }
+}
@@ -0,0 +1,167 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GameCodecTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void movesRoundTrip() {
+        Random random = new Random(1);
+        for (int count = 0; count <= BitBoard.SIZE; count++) {
+            int[] moves = new int[count];
+            for (int i = 0; i < count; i++)
+                moves[i] = random.nextInt(BitBoard.WIDTH);
+            ByteBuffer columns = ByteBuffer.allocate(GameCodec.MAX_MOVES_BYTES);
+            GameCodec.putMoves(columns, moves, count);
+            ByteBuffer history = ByteBuffer.allocate(GameCodec.MAX_MOVES_BYTES);
+            GameCodec.putMoves(history, GameCodec.movesToString(moves, count));
+            assertEquals(GameCodec.movesBytes(count), columns.position());
+            assertEquals(columns.flip(), history.flip());
+
+            int[] read = new int[BitBoard.SIZE];
+            assertEquals(count, GameCodec.getMoves(columns, read));
+            assertFalse(columns.hasRemaining());
+            assertArrayEquals(moves, Arrays.copyOf(read, count));
+        }
+    }
+
+    @Test
+    public void invalidHistoryIsRejectedWithoutWriting() {
+        ByteBuffer out = ByteBuffer.allocate(GameCodec.MAX_MOVES_BYTES);
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.putMoves(out, "33474"));
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.putMoves(out, "3x"));
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.putMoves(out, "0".repeat(BitBoard.SIZE + 1)));
+        assertEquals(0, out.position());
+    }
+
+    @Test
+    public void invalidGameIsNotWrittenToTheArchive() throws IOException {
+        Path archive = directory.resolve("invalid" + GameArchiveWriter.EXTENSION);
+        try (GameArchiveWriter writer = new GameArchiveWriter(archive)) {
+            writer.write(0, 1, "3344556");
+            assertThrows(IllegalArgumentException.class, () -> writer.write(1, 1, "3349"));
+            writer.write(2, 2, "0123456");
+            assertEquals(2, writer.count);
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+            assertTrue(reader.next());
+            assertEquals("3344556", reader.moveHistory());
+            assertTrue(reader.next());
+            assertEquals(2, reader.id);
+            assertEquals("0123456", reader.moveHistory());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void positionRoundTrip() {
+        for (String moves : randomGames(200, new Random(2))) {
+            BitBoard position = BitBoard.fromMoves(moves.substring(0, moves.length() / 2));
+            BitBoard decoded = GameCodec.decodePosition(GameCodec.encodePosition(position));
+            assertArrayEquals(position.boards, decoded.boards, moves);
+            assertEquals(position.moveCount, decoded.moveCount);
+            assertEquals(position.hash, decoded.hash);
+            assertEquals(position.mirrorHash, decoded.mirrorHash);
+            assertEquals(position.threats(0), decoded.threats(0));
+            assertEquals(position.threats(1), decoded.threats(1));
+        }
+    }
+
+    @Test
+    public void archiveRoundTrip() throws IOException {
+        List<String> games = randomGames(5000, new Random(3));
+        Path archive = directory.resolve("games" + GameArchiveWriter.EXTENSION);
+        try (GameArchiveWriter writer = new GameArchiveWriter(archive)) {
+            for (int id = 0; id < games.size(); id++) {
+                String moves = games.get(id);
+                // both overloads, alternating.
+                if (id % 2 == 0) {
+                    writer.write(id, id % 3, moves);
+                } else {
+                    int[] columns = new int[moves.length()];
+                    for (int i = 0; i < columns.length; i++)
+                        columns[i] = moves.charAt(i) - '0';
+                    writer.write(id, id % 3, columns, columns.length);
+                }
+            }
+            assertEquals(games.size(), writer.count);
+        }
+        try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+            for (int id = 0; id < games.size(); id++) {
+                assertTrue(reader.next());
+                assertEquals(id, reader.id);
+                assertEquals(id % 3, reader.winner);
+                assertEquals(games.get(id), reader.moveHistory());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void truncatedArchiveIsRejected() throws IOException {
+        Path archive = writeArchive("3344556", "0123456");
+        byte[] bytes = Files.readAllBytes(archive);
+        Files.write(archive, Arrays.copyOf(bytes, bytes.length - 1));
+        try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+            assertTrue(reader.next());
+            IOException e = assertThrows(IOException.class, reader::next);
+            assertTrue(e.getMessage().startsWith("Truncated"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void moveCountAboveTheBoardSizeIsRejected() throws IOException {
+        Path archive = writeArchive("3344556");
+        byte[] bytes = Files.readAllBytes(archive);
+        // the count byte follows the header, the game id and the winner.
+        bytes[GameArchiveWriter.HEADER_BYTES + 5] = (byte) (BitBoard.SIZE + 1);
+        Files.write(archive, bytes);
+        try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+            IOException e = assertThrows(IOException.class, reader::next);
+            assertTrue(e.getMessage().startsWith("Corrupt"), e.getMessage());
+        }
+    }
+
+    private Path writeArchive(String... games) throws IOException {
+        Path archive = directory.resolve("small" + GameArchiveWriter.EXTENSION);
+        try (GameArchiveWriter writer = new GameArchiveWriter(archive)) {
+            for (int id = 0; id < games.length; id++)
+                writer.write(id, 1, games[id]);
+        }
+        return archive;
+    }
+
+    // random games played to a win or a full board.
+    private static List<String> randomGames(int count, Random random) {
+        List<String> games = new ArrayList<String>();
+        for (int game = 0; game < count; game++) {
+            BitBoard position = new BitBoard();
+            StringBuilder moves = new StringBuilder();
+            while (position.moveCount < BitBoard.SIZE && !position.lastMoveWon()) {
+                int col = random.nextInt(BitBoard.WIDTH);
+                if (position.canPlay(col)) {
+                    position.play(col);
+                    moves.append(col);
+                }
+            }
+            games.add(moves.toString());
+        }
+        return games;
+    }
+}
@@ -0,0 +1,148 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GameJournalTest {
+    @TempDir
+    Path directory;
+
+    private Player[] players = { new Player("Player 1", Colour.RED), new Player("Player 2", Colour.YELLOW) };
+
+    @Test
+    public void runningGamesAreRecovered() throws IOException {
+        Map<Integer, String> expected = new TreeMap<Integer, String>();
+        try (GameJournal journal = new GameJournal(directory)) {
+            int moved = journal.newGame();
+            play(journal, moved, "343");
+            expected.put(moved, "343");
+            // a game without moves is recovered too.
+            expected.put(journal.newGame(), "");
+            int finished = journal.newGame();
+            play(journal, finished, "3344556");
+            journal.finish(finished);
+            int undone = journal.newGame();
+            play(journal, undone, "0123");
+            journal.undo(undone, 2);
+            journal.move(undone, 2, 6);
+            expected.put(undone, "016");
+        }
+        try (GameJournal journal = new GameJournal(directory)) {
+            assertEquals(expected, journal.recoveredGames());
+            // ids continue after the recovered ones.
+            assertEquals(4, journal.newGame());
+        }
+    }
+
+    @Test
+    public void journaledBoardIsRestored() throws IOException {
+        int id;
+        try (GameJournal journal = new GameJournal(directory)) {
+            Board board = new Board("3322", players);
+            board.attachJournal(journal);
+            id = board.journalId;
+            for (int col : new int[] { 4, 4, 5 }) {
+                Move move = new Move(col, board.getCurrentPlayer());
+                board.checkAvailableMove(move);
+                board.makeMove(move);
+            }
+            board.undoMove();
+        }
+        try (GameJournal journal = new GameJournal(directory)) {
+            Board board = journal.restore(id, players);
+            assertEquals("332244", board.moveHistory);
+            assertEquals(6, board.moveCount);
+        }
+    }
+
+    // many small segments, so the closed ones are compacted into a snapshot while
+    // games are played. games without moves have to survive that as well.
+    @Test
+    public void compactionKeepsRunningGames() throws IOException {
+        Map<Integer, String> expected = new TreeMap<Integer, String>();
+        long compactions;
+        try (GameJournal journal = new GameJournal(directory, 256)) {
+            expected.put(journal.newGame(), "");
+            journal.sync();
+            for (int game = 0; game < 40; game++) {
+                int id = journal.newGame();
+                String moves = "0123456".substring(0, game % 7);
+                play(journal, id, moves);
+                if (game % 3 == 0) {
+                    journal.finish(id);
+                } else {
+                    expected.put(id, moves);
+                }
+                journal.sync();
+            }
+            journal.compact();
+            compactions = journal.compactions;
+        }
+        assertTrue(compactions > 0);
+        assertTrue(segments().size() < 40, segments().size() + " segments");
+        try (GameJournal journal = new GameJournal(directory, 256)) {
+            assertEquals(expected, journal.recoveredGames());
+        }
+    }
+
+    // a commit cut off by a crash is dropped, the commits before it are kept.
+    @Test
+    public void tornCommitIsDropped() throws IOException {
+        int id;
+        try (GameJournal journal = new GameJournal(directory)) {
+            id = journal.newGame();
+            play(journal, id, "33");
+            journal.sync();
+            journal.move(id, 2, 4);
+            journal.sync();
+        }
+        Path last = segments().get(segments().size() - 1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try (GameJournal journal = new GameJournal(directory)) {
+            assertEquals(Map.of(id, "33"), journal.recoveredGames());
+        }
+    }
+
+    @Test
+    public void garbageAfterTheLastCommitIsIgnored() throws IOException {
+        int id;
+        try (GameJournal journal = new GameJournal(directory)) {
+            id = journal.newGame();
+            play(journal, id, "332");
+        }
+        Path last = segments().get(segments().size() - 1);
+        Files.write(last, new byte[] { 0, 0, 0, 6, 1, 2, 3 }, StandardOpenOption.APPEND);
+        try (GameJournal journal = new GameJournal(directory)) {
+            assertEquals(Map.of(id, "332"), journal.recoveredGames());
+        }
+    }
+
+    private static void play(GameJournal journal, int id, String moves) {
+        for (int ply = 0; ply < moves.length(); ply++)
+            journal.move(id, ply, moves.charAt(ply) - '0');
+    }
+
+    // segment files with records, oldest first. a journal that is opened starts a
+    // new segment, empty ones are skipped.
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log"))
+                    .filter(file -> file.toFile().length() > GameJournal.HEADER_BYTES).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+public class MinimaxAllocationTest {
+    // positions of Benchmark.POSITIONS that take a few thousand to a few million
+    // nodes to solve.
+    private final static String[] POSITIONS = { "55566502016015065220", "03036624312340251114422",
+            "0165546040120620255112", "114643526435" };
+
+    // runMinimax works on preallocated move buffers and the bitboard, so a warm
+    // solve allocates nothing per node. the JIT can still allocate a few hundred
+    // bytes once while it compiles, an object per node would be 16 bytes or more
+    // for every node.
+    @Test
+    public void solveAllocatesNothingPerNode() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        long thread = Thread.currentThread().getId();
+        Minimax minimax = new Minimax();
+        for (String moves : POSITIONS) {
+            BitBoard position = BitBoard.fromMoves(moves);
+            // warm up, the first calls run in the interpreter.
+            for (int i = 0; i < 5; i++)
+                solve(minimax, position);
+
+            minimax.table.clear();
+            minimax.startSearch(position, Long.MAX_VALUE);
+            long before = threads.getThreadAllocatedBytes(thread);
+            run(minimax, position);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            assertTrue(minimax.stats.nodes > 1000, moves);
+            assertTrue(allocated < minimax.stats.nodes,
+                    moves + ": " + allocated + " bytes for " + minimax.stats.nodes + " nodes");
+        }
+    }
+
+    private static void solve(Minimax minimax, BitBoard position) {
+        minimax.table.clear();
+        minimax.startSearch(position, Long.MAX_VALUE);
+        run(minimax, position);
+    }
+
+    private static int run(Minimax minimax, BitBoard position) {
+        return minimax.runMinimax(position, position.moveCount % 2 == 0, -Minimax.INFINITY, Minimax.INFINITY,
+                BitBoard.SIZE - position.moveCount);
+    }
+}
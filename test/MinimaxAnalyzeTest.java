@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MinimaxAnalyzeTest {
+    // a draw and mid-game wins of each player.
+    private final static String[] POSITIONS = { "154462162311321400651304562622", "03036624312340251114422",
+            "0165546040120620255112", "55566502016015065220" };
+
+    @Test
+    public void columnScoresMatchASearchOfEachColumn() {
+        for (String moves : POSITIONS) {
+            Analysis analysis = minimax().analyze(BitBoard.fromMoves(moves), null);
+            BitBoard position = BitBoard.fromMoves(moves);
+            for (int col = 0; col < BitBoard.WIDTH; col++) {
+                Analysis.Column column = analysis.columns[col];
+                if (!position.canPlay(col)) {
+                    assertNull(column, moves + " col " + col);
+                    continue;
+                }
+                assertNotNull(column, moves + " col " + col);
+                assertTrue(column.isExact(), moves + " col " + col);
+                position.play(col);
+                int expected = position.lastMoveWon() ? (position.moveCount % 2 == 1 ? 1 : -1)
+                        * Minimax.winScore(position.moveCount) : minimax().search(position).score;
+                position.undo();
+                assertEquals(expected, column.score, moves + " col " + col);
+            }
+        }
+    }
+
+    @Test
+    public void principalVariationIsALegalLineEndingInTheScore() {
+        for (String moves : POSITIONS) {
+            Analysis analysis = minimax().analyze(BitBoard.fromMoves(moves), null);
+            for (Analysis.Column column : analysis.columns) {
+                if (column == null)
+                    continue;
+                String line = moves + " pv " + column;
+                assertEquals(column.col, column.pv[0], line);
+                BitBoard position = BitBoard.fromMoves(moves);
+                for (int move : column.pv) {
+                    assertTrue(position.canPlay(move) && !position.lastMoveWon(), line);
+                    position.play(move);
+                }
+                if (column.score == 0) {
+                    assertTrue(!position.lastMoveWon() && position.moveCount == BitBoard.SIZE, line);
+                } else {
+                    // the player the score favours won with the line's last move,
+                    // at the move count the score is made from.
+                    assertTrue(position.lastMoveWon(), line);
+                    assertEquals(column.score > 0, position.moveCount % 2 == 1, line);
+                    assertEquals(Minimax.winScore(position.moveCount), Math.abs(column.score), line);
+                    assertEquals(column.distance, column.pv.length, line);
+                }
+            }
+        }
+    }
+
+    private static Minimax minimax() {
+        return new Minimax(new TranspositionTable(16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class MinimaxSolveTest {
+    // a draw, two mid-game wins of each player and two lines of the benchmark
+    // files BatchSolver reads, converted from their 1-based columns.
+    private final static String[] POSITIONS = { "154462162311321400651304562622", "03036624312340251114422",
+            "0165546040120620255112", pons("7422341735647741166133573473242566"),
+            pons("2252576253462244111563365343671351441") };
+
+    @Test
+    public void solveMatchesTheFullWindowSearch() {
+        for (String moves : POSITIONS) {
+            int expected = minimax().search(BitBoard.fromMoves(moves)).score;
+            assertEquals(expected, minimax().solve(BitBoard.fromMoves(moves)), moves);
+        }
+    }
+
+    @Test
+    public void weakSolveIsTheSignOfTheScore() {
+        for (String moves : POSITIONS) {
+            int expected = Integer.signum(minimax().search(BitBoard.fromMoves(moves)).score);
+            assertEquals(expected, minimax().weakSolve(BitBoard.fromMoves(moves)), moves);
+        }
+    }
+
+    @Test
+    public void knownOutcomes() {
+        assertEquals(0, minimax().weakSolve(BitBoard.fromMoves(POSITIONS[0])));
+        assertEquals(-1, minimax().weakSolve(BitBoard.fromMoves(POSITIONS[1])));
+        assertEquals(1, minimax().weakSolve(BitBoard.fromMoves(POSITIONS[2])));
+        assertEquals(-958, minimax().solve(BitBoard.fromMoves(POSITIONS[1])));
+        assertEquals(959, minimax().solve(BitBoard.fromMoves(POSITIONS[2])));
+    }
+
+    private static Minimax minimax() {
+        return new Minimax(new TranspositionTable(16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    private static String pons(String moves) {
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < moves.length(); i++)
+            columns.append((char) (moves.charAt(i) - 1));
+        return columns.toString();
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OpeningBookTest {
+    // a late start, so generating the book takes a fraction of a second.
+    private final static String START = "03036624312340251114422";
+    private final static int MAX_PLY = START.length() + 2;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recordsRoundTrip() throws IOException {
+        Random random = new Random(1);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = random.nextLong() >>> 15;
+        Arrays.sort(keys);
+        int[] entries = new int[keys.length];
+        for (int i = 0; i < entries.length; i++)
+            entries[i] = OpeningBook.entry(random.nextInt(2001) - 1000, random.nextInt(BitBoard.WIDTH));
+        Path file = directory.resolve("records.book");
+        OpeningBook.write(file, 12, keys, entries);
+
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(12, book.maxPly);
+        assertEquals(keys.length, book.size);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], book.key(i));
+            assertEquals(entries[i], book.probe(keys[i]));
+        }
+        assertEquals(-1, book.probe(-1));
+    }
+
+    @Test
+    public void truncatedBookIsRejected() throws IOException {
+        Path file = directory.resolve("records.book");
+        OpeningBook.write(file, 12, new long[] { 1, 2, 3 }, new int[] { 0, 0, 0 });
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        IOException e = assertThrows(IOException.class, () -> new OpeningBook(file));
+        assertTrue(e.getMessage().startsWith("Truncated"), e.getMessage());
+    }
+
+    // every position from the start up to the max ply is in the generated book,
+    // with the solver's score and a move that keeps it.
+    @Test
+    public void generatedBookMatchesTheSolver() throws IOException {
+        Path file = directory.resolve("opening.book");
+        OpeningBookGenerator.generate(START, MAX_PLY, 1, file);
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(MAX_PLY, book.maxPly);
+        int checked = check(book, BitBoard.fromMoves(START));
+        assertEquals(book.size, checked);
+    }
+
+    @Test
+    public void searchPlaysFromTheBook() throws IOException {
+        Path file = directory.resolve("opening.book");
+        OpeningBookGenerator.generate(START, MAX_PLY, 1, file);
+        Minimax minimax = new Minimax();
+        minimax.book = new OpeningBook(file);
+        BitBoard position = BitBoard.fromMoves(START);
+        SearchResult result = minimax.search(position);
+        assertTrue(result.fromBook);
+        assertEquals(new Minimax().search(position).score, result.score);
+
+        // the mirror image shares the record, its move is mirrored back.
+        StringBuilder mirrored = new StringBuilder();
+        for (int i = 0; i < START.length(); i++)
+            mirrored.append(BitBoard.mirrorCol(START.charAt(i) - '0'));
+        SearchResult mirror = minimax.search(BitBoard.fromMoves(mirrored.toString()));
+        assertTrue(mirror.fromBook);
+        assertEquals(result.score, mirror.score);
+        assertEquals(BitBoard.mirrorCol(result.col), mirror.col);
+    }
+
+    @Test
+    public void maxPlyBeforeTheStartIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> OpeningBookGenerator.generate(START, START.length() - 1, 1, directory.resolve("x.book")));
+    }
+
+    // checks the position and the ones after it up to the book's max ply, returns
+    // the number of distinct records checked.
+    private static int check(OpeningBook book, BitBoard position) {
+        return check(book, position, new HashSet<Long>());
+    }
+
+    private static int check(OpeningBook book, BitBoard position, Set<Long> seen) {
+        if (position.lastMoveWon() || position.moveCount >= BitBoard.SIZE || !seen.add(position.canonicalKey()))
+            return 0;
+        int entry = book.probe(position.canonicalKey());
+        assertTrue(entry != -1, "missing position at ply " + position.moveCount);
+        int score = new Minimax().search(position).score;
+        assertEquals(score, OpeningBook.score(entry));
+        int col = OpeningBook.bestCol(entry);
+        if (position.key() != position.canonicalKey())
+            col = BitBoard.mirrorCol(col);
+        BitBoard next = position.copy();
+        next.play(col);
+        int after = next.lastMoveWon() ? (next.moveCount % 2 == 1 ? Minimax.winScore(next.moveCount)
+                : -Minimax.winScore(next.moveCount)) : new Minimax().search(next).score;
+        assertEquals(score, after, "book move " + col + " doesn't keep the score");
+
+        int checked = 1;
+        if (position.moveCount < book.maxPly) {
+            for (int c = 0; c < BitBoard.WIDTH; c++) {
+                if (position.canPlay(c)) {
+                    position.play(c);
+                    checked += check(book, position, seen);
+                    position.undo();
+                }
+            }
+        }
+        return checked;
+    }
+}
@@ -0,0 +1,31 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class ParallelSearchTest {
+    // solved mid-game positions, the last one is symmetric.
+    private final static String[] POSITIONS = { "55566502016015065220", "11553125641630122340",
+            "03036624312340251114422", "0165546040120620255112", "333333006611", "33333300661155" };
+
+    @Test
+    public void findsTheSameMoveAndScoreAsMinimax() {
+        Player[] players = { new Player("Player 1", Colour.RED), new Player("Player 2", Colour.YELLOW) };
+        for (int threads : new int[] { 2, 4 }) {
+            ParallelSearch search = new ParallelSearch(threads,
+                    new TranspositionTable(16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+            try {
+                for (String moves : POSITIONS) {
+                    Minimax minimax = new Minimax(
+                            new TranspositionTable(16, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+                    SearchResult expected = minimax.search(BitBoard.fromMoves(moves));
+                    search.table.clear();
+                    int col = search.findBestMove(new Board(moves, players));
+                    assertEquals(expected.col, col, moves + " with " + threads + " threads");
+                    assertEquals(expected.score, search.score, moves + " with " + threads + " threads");
+                }
+            } finally {
+                search.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TranspositionTableFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void entriesRoundTrip() throws IOException {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        Random random = new Random(1);
+        long[] hashes = new long[50_000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            table.store(hashes[i], random.nextInt(2001) - 1000, random.nextInt(43), random.nextInt(3),
+                    random.nextInt(8) - 1);
+        }
+        Path file = directory.resolve("table.tt");
+        table.save(file, 42);
+
+        TranspositionTable loaded = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        int stored = 0;
+        for (long hash : hashes) {
+            if (table.probe(hash) != 0)
+                stored++;
+        }
+        assertEquals(stored, loaded.load(file, 42));
+        for (long hash : hashes)
+            assertEquals(table.probe(hash), loaded.probe(hash));
+    }
+
+    // a table saved after a solve makes the same solve in a new process cheap.
+    @Test
+    public void loadedTableSpeedsUpTheSameSolve() throws IOException {
+        BitBoard position = BitBoard.fromMoves("03036624312340251114422");
+        Minimax first = new Minimax(new TranspositionTable());
+        SearchResult solved = first.search(position);
+        Path file = directory.resolve("table.tt");
+        first.table.save(file, first.fingerprint());
+
+        Minimax second = new Minimax(new TranspositionTable());
+        second.table.load(file, second.fingerprint());
+        SearchResult resolved = second.search(position);
+        assertEquals(solved.score, resolved.score);
+        assertEquals(solved.col, resolved.col);
+        assertTrue(10 * resolved.stats.nodes < solved.stats.nodes,
+                resolved.stats.nodes + " nodes after loading, " + solved.stats.nodes + " before");
+    }
+
+    @Test
+    public void otherFingerprintIsRejected() throws IOException {
+        Path file = savedTable();
+        IOException e = assertThrows(IOException.class, () -> new TranspositionTable().load(file, 43));
+        assertTrue(e.getMessage().contains("different search"), e.getMessage());
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        Path file = savedTable();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        IOException e = assertThrows(IOException.class, () -> new TranspositionTable().load(file, 42));
+        assertTrue(e.getMessage().startsWith("Truncated"), e.getMessage());
+    }
+
+    @Test
+    public void corruptRecordIsRejected() throws IOException {
+        Path file = savedTable();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> new TranspositionTable().load(file, 42));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    private Path savedTable() throws IOException {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        Minimax minimax = new Minimax(table);
+        minimax.search(BitBoard.fromMoves("0165546040120620255112"));
+        Path file = directory.resolve("small.tt");
+        table.save(file, 42);
+        return file;
+    }
+}